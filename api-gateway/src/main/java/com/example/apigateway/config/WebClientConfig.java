@@ -1,9 +1,17 @@
 package com.example.apigateway.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
 
 @Configuration
 public class WebClientConfig {
@@ -12,4 +20,36 @@ public class WebClientConfig {
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
-}
\ No newline at end of file
+
+    // Pool of the users service client; Reactor Netty publishes its gauges and acquisition timer as
+    // reactor.netty.connection.provider.* with name=users
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider usersServiceConnectionProvider(
+            @Value("${gateway.clients.users.max-connections:50}") int maxConnections,
+            @Value("${gateway.clients.users.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout) {
+        return ConnectionProvider.builder("users")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    // Built once and shared by all /auth requests; latency is recorded as reactor.netty.http.client.*
+    @Bean
+    public WebClient usersServiceWebClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider usersServiceConnectionProvider,
+            @Value("${gateway.clients.users.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${gateway.clients.users.response-timeout:3s}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(usersServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                // Only the fixed /register and /login paths are called, so the uri is safe to use as a tag
+                .metrics(true, Function.identity());
+        return webClientBuilder.clone()
+                .baseUrl("http://usersservice/api/users")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
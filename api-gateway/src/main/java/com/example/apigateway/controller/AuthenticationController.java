@@ -23,16 +23,15 @@ import java.util.Map;
 public class AuthenticationController {
     private final JwtUtil jwtUtil;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String USERS_SERVICE_URL = "http://usersservice/api/users";
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private WebClient usersServiceWebClient;
 
     @PostMapping("/register")
     public Mono<ResponseEntity<String>> register(@RequestBody Map<String, Object> userDto) {
         log.info("Received registration request: {}", userDto);
-        return webClientBuilder.build()
+        return usersServiceWebClient
                 .post()
-                .uri(USERS_SERVICE_URL + "/register")
+                .uri("/register")
                 .bodyValue(userDto)
                 .retrieve()
                 .onStatus(status -> !status.is2xxSuccessful(),
@@ -54,9 +53,9 @@ public class AuthenticationController {
 
     @PostMapping("/login")
     public Mono<ResponseEntity<String>> login(@RequestBody Map<String, Object> userDto) {
-        return webClientBuilder.build()
+        return usersServiceWebClient
                 .post()
-                .uri(USERS_SERVICE_URL + "/login")
+                .uri("/login")
                 .bodyValue(userDto)
                 .retrieve()
                 .bodyToMono(String.class)
@@ -1,11 +1,18 @@
 package com.vishnu.discussion.config;
 
+import com.vishnu.discussion.service.PostCache;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class DataSourceConfig {
@@ -22,13 +29,95 @@ public class DataSourceConfig {
     @Value("${spring.datasource.password}")
     private String password;
 
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int maximumPoolSize;
+
+    @Value("${spring.datasource.hikari.minimum-idle:5}")
+    private int minimumIdle;
+
+    @Value("${spring.datasource.hikari.connection-timeout:3000}")
+    private long connectionTimeoutMs;
+
+    @Value("${spring.datasource.hikari.max-lifetime:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${spring.datasource.hikari.leak-detection-threshold:30000}")
+    private long leakDetectionThresholdMs;
+
+    @Value("${discussion.datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${discussion.datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${discussion.datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${discussion.datasource.replicas.health-check-interval:5s}")
+    private Duration replicaHealthCheckInterval;
+
+    @Value("${discussion.datasource.replicas.read-your-writes-window:5s}")
+    private Duration readYourWritesWindow;
+
+    /**
+     * Pooled connections instead of a new MySQL connection per transaction. The pool is only started on first use,
+     * so Spring Boot can attach its Micrometer tracker first: hikaricp.connections.active/idle/pending/acquire/timeout
+     * with pool=discussion-pool.
+     * <p>
+     * With {@code discussion.datasource.replicas.urls} set, read-only transactions are spread over one pool per
+     * replica instead (pool=discussion-replica-N); see {@link ReadReplicaDataSource}.
+     */
+    @Bean
+    public DataSource dataSource(ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<PostCache> postCache) {
+        HikariDataSource primary = pool("discussion-pool", url, username, password);
+        if (replicaUrls.isEmpty()) {
+            return primary;
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = pool("discussion-replica-" + i, replicaUrls.get(i), replicaUsername, replicaPassword);
+            // An unreachable replica must not fail the first read; it is marked down and the read goes to the primary
+            replica.setInitializationFailTimeout(-1);
+            // Spring Boot only instruments the dataSource bean's own pool
+            replica.setMetricRegistry(registry);
+            replicas.add(replica);
+        }
+        ReadReplicaDataSource dataSource = new ReadReplicaDataSource(primary, replicas, replicaHealthCheckInterval, registry);
+        // Rows read from a lagging replica must not replace newer ones in the second-level cache
+        dataSource.setReplicaReadListener(() -> postCache.getObject().skipPutsFromReplicaReads());
+        return dataSource;
+    }
+
+    // Without replicas every read is on the primary already
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter(replicaUrls.isEmpty() ? Duration.ZERO : readYourWritesWindow);
+    }
+
+    private HikariDataSource pool(String poolName, String jdbcUrl, String user, String pass) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(poolName);
         dataSource.setDriverClassName(driverClassName);
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(user);
+        dataSource.setPassword(pass);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(minimumIdle);
+        dataSource.setConnectionTimeout(connectionTimeoutMs);
+        dataSource.setMaxLifetime(maxLifetimeMs);
+        // Logs the stack of whoever holds a connection longer than this; long NDJSON streams can trip it legitimately
+        dataSource.setLeakDetectionThreshold(leakDetectionThresholdMs);
+
+        // Connector/J client-side prepared statement cache, so repeated queries skip re-parsing
+        dataSource.addDataSourceProperty("cachePrepStmts", "true");
+        dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+        // Read-only transactions flip the connection's read-only flag; skip the round trip when it is already set
+        dataSource.addDataSourceProperty("useLocalSessionState", "true");
+        // Sends each JDBC batch of inserts as one multi-row INSERT instead of one statement per row
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
 
         return dataSource;
     }
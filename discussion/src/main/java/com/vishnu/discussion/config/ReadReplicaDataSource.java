@@ -0,0 +1,202 @@
+package com.vishnu.discussion.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to read replicas and everything else to the primary.
+ * <p>
+ * Connections are only taken from a pool when a transaction runs its first statement, by which point Spring has
+ * marked the connection read-only or not; read-only ones come from the proxy's read-only data source. Read-only
+ * transactions go to the healthy replicas in turn, unless the
+ * caller wrote recently (see {@link ReadYourWritesFilter}). A replica whose connection or health check fails is
+ * skipped until a later check succeeds. When no replica is usable, reads fall back to the primary. Work outside a
+ * transaction always goes to the primary.
+ * <p>
+ * Reads are counted as {@code discussion.datasource.reads{target=primary|replica}}. The usable replicas are the
+ * {@code discussion.datasource.replicas.healthy} gauge.
+ */
+@Slf4j
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    private static final String PRIMARY = "primary";
+    // Bound as a transaction resource while the transaction holds a replica connection
+    private static final Object REPLICA_TRANSACTION = new Object();
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final ScheduledExecutorService healthChecks;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+    private Runnable replicaReadListener = () -> {
+    };
+
+    public ReadReplicaDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                 Duration healthCheckInterval, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        setTargetDataSource(primary);
+        setReadOnlyDataSource(new ReadOnlyRouter());
+        // Known up front, so creating the proxy does not open a connection to look them up
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+        this.primaryReads = Counter.builder("discussion.datasource.reads")
+                .description("Read-only transactions by the database they were sent to")
+                .tag("target", PRIMARY)
+                .register(meterRegistry);
+        this.replicaReads = Counter.builder("discussion.datasource.reads")
+                .description("Read-only transactions by the database they were sent to")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        Gauge.builder("discussion.datasource.replicas.healthy", this.replicas,
+                        rs -> rs.stream().filter(replica -> replica.healthy).count())
+                .description("Read replicas that passed their last health check")
+                .register(meterRegistry);
+
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "discussion-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = healthCheckInterval.toMillis();
+        healthChecks.scheduleWithFixedDelay(this::checkReplicas, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs in the transaction whenever it is given a replica connection, before its first statement.
+     */
+    public void setReplicaReadListener(Runnable replicaReadListener) {
+        this.replicaReadListener = replicaReadListener;
+    }
+
+    /**
+     * @return whether the current transaction reads from a replica
+     */
+    public static boolean isReadingReplica() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_TRANSACTION);
+    }
+
+    /**
+     * Runs {@code read} with any connection it takes coming from the primary. A transaction that already reads a
+     * replica keeps doing so. Calls may nest.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        boolean nested = PRIMARY_REQUIRED.get() != null;
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            // Only the outermost call clears the flag; an inner one would put the rest of the outer read on a replica
+            if (!nested) {
+                PRIMARY_REQUIRED.remove();
+            }
+        }
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(1);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Read replica {} is {}", replica.dataSource.getPoolName(), healthy ? "back up" : "down");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+        primary.close();
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    // Connections of read-only transactions; the proxy takes all others from the primary
+    private final class ReadOnlyRouter extends AbstractDataSource {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Replica replica = ReadYourWritesFilter.primaryReadsRequired() || PRIMARY_REQUIRED.get() != null
+                    ? null
+                    : nextHealthyReplica();
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replicaReads.increment();
+                    markReadingReplica();
+                    replicaReadListener.run();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.healthy = false;
+                    log.warn("Read replica {} is down, reading from the primary: {}", replica.dataSource.getPoolName(),
+                            e.getMessage());
+                }
+            }
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        private Replica nextHealthyReplica() {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), size);
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((start + i) % size);
+                if (replica.healthy) {
+                    return replica;
+                }
+            }
+            return null;
+        }
+
+        private void markReadingReplica() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive() || isReadingReplica()) {
+                return;
+            }
+            TransactionSynchronizationManager.bindResource(REPLICA_TRANSACTION, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_TRANSACTION);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.vishnu.discussion.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps a caller's reads on the primary for {@code discussion.datasource.replicas.read-your-writes-window} after a
+ * successful write, so it does not read a replica that has not caught up with that write yet. A zero window turns
+ * this off.
+ * <p>
+ * Callers are told apart by their {@code Authorization} header, which the gateway passes through. Without one, the
+ * first {@code X-Forwarded-For} address or the remote address is used. Streamed responses are written on another
+ * thread and read from the replicas regardless.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+    private static final long MAXIMUM_CALLERS = 100_000;
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.enabled = !window.isZero();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(MAXIMUM_CALLERS)
+                .build();
+    }
+
+    /**
+     * @return whether the request being served by this thread is from a caller that wrote within the window
+     */
+    static boolean primaryReadsRequired() {
+        return PRIMARY_READS.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String caller = callerOf(request);
+        if (recentWriters.getIfPresent(caller) != null) {
+            PRIMARY_READS.set(Boolean.TRUE);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            PRIMARY_READS.remove();
+        }
+        if (!READ_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+            recentWriters.put(caller, Boolean.TRUE);
+        }
+    }
+
+    private static String callerOf(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null) {
+            return authorization;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null) {
+            return forwardedFor.split(",", 2)[0].trim();
+        }
+        return request.getRemoteAddr();
+    }
+}
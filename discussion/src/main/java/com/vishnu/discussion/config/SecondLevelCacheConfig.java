@@ -0,0 +1,39 @@
+package com.vishnu.discussion.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SecondLevelCacheConfig {
+
+    /**
+     * Hit ratio of each second-level cache region as {@code discussion.cache.hit.ratio{region=...}}, next to the raw
+     * {@code hibernate.second.level.cache.requests} counts. Regions: posts, comments and post-comments.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatios(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : statistics.getSecondLevelCacheRegionNames()) {
+                Gauge.builder("discussion.cache.hit.ratio", statistics, stats -> hitRatio(stats.getCacheRegionStatistics(region)))
+                        .tag("region", region)
+                        .description("Second-level cache hits over lookups since startup")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        if (region == null) {
+            return Double.NaN;
+        }
+        long lookups = region.getHitCount() + region.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) region.getHitCount() / lookups;
+    }
+}
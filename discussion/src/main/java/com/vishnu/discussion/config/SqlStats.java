@@ -0,0 +1,72 @@
+package com.vishnu.discussion.config;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JDBC work done on behalf of one HTTP request: statements executed, rows read and time spent waiting on the
+ * database, plus how often each distinct SQL string ran so that N+1 patterns stand out.
+ * <p>
+ * {@link SqlStatsFilter} binds one to the request thread (and {@link SqlStatsConfig} to the thread writing a streamed
+ * response); the JDBC proxy installed by {@link SqlStatsConfig} records into whichever is bound. Work on other threads,
+ * such as scheduled flushes, is not attributed to any request.
+ */
+public final class SqlStats {
+    static final String ATTRIBUTE = SqlStats.class.getName();
+
+    private static final ThreadLocal<SqlStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final Map<String, LongAdder> executions = new ConcurrentHashMap<>();
+
+    /**
+     * @return the stats of the request being served by this thread, or null outside a request
+     */
+    public static SqlStats current() {
+        return CURRENT.get();
+    }
+
+    static void bind(SqlStats stats) {
+        CURRENT.set(stats);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    void recordStatement(String sql, long elapsedNanos) {
+        statements.increment();
+        nanos.add(elapsedNanos);
+        executions.computeIfAbsent(sql, s -> new LongAdder()).increment();
+    }
+
+    void recordRow() {
+        rows.increment();
+    }
+
+    public long statements() {
+        return statements.sum();
+    }
+
+    public long rows() {
+        return rows.sum();
+    }
+
+    public long nanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * @return the statement that ran most often with its count, or null when none ran
+     */
+    public Map.Entry<String, Long> mostRepeated() {
+        return executions.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .max(Comparator.comparingLong(Map.Entry::getValue))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.vishnu.discussion.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.concurrent.Callable;
+
+@Configuration
+public class SqlStatsConfig implements WebMvcConfigurer {
+    private static final String STARTED_AT = "sqlStats.startedAt";
+
+    /**
+     * Wraps the {@code dataSource} bean in a JDBC proxy that records every statement, its time and the rows read from
+     * its result set into the {@link SqlStats} of the current request.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (!(bean instanceof DataSource dataSource) || !"dataSource".equals(beanName)) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create("discussion", dataSource)
+                        .beforeQuery((execution, queries) -> execution.addCustomValue(STARTED_AT, System.nanoTime()))
+                        .afterQuery((execution, queries) -> {
+                            SqlStats stats = SqlStats.current();
+                            if (stats != null && !queries.isEmpty()) {
+                                long startedAt = execution.getCustomValue(STARTED_AT, Long.class);
+                                stats.recordStatement(queries.get(0).getQuery(), System.nanoTime() - startedAt);
+                            }
+                        })
+                        .proxyResultSet()
+                        .afterMethod(method -> {
+                            SqlStats stats = SqlStats.current();
+                            if (stats != null && method.getTarget() instanceof ResultSet
+                                    && "next".equals(method.getMethod().getName())
+                                    && Boolean.TRUE.equals(method.getResult())) {
+                                stats.recordRow();
+                            }
+                        })
+                        .build();
+            }
+        };
+    }
+
+    // MVC test slices have no meter registry but still get the headers, which SqlBudget asserts on
+    @Bean
+    public SqlStatsFilter sqlStatsFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                         @Value("${discussion.sql.repeated-statement-threshold:10}") int repeatedStatementThreshold) {
+        return new SqlStatsFilter(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), repeatedStatementThreshold);
+    }
+
+    // Streamed responses are written on an MVC task thread; count their statements towards the same request
+    @Override
+    public void configureAsyncSupport(@NonNull AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(@NonNull NativeWebRequest request, @NonNull Callable<T> task) {
+                Object stats = request.getAttribute(SqlStats.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (stats instanceof SqlStats) {
+                    SqlStats.bind((SqlStats) stats);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(@NonNull NativeWebRequest request, @NonNull Callable<T> task, Object result) {
+                SqlStats.unbind();
+            }
+        });
+    }
+}
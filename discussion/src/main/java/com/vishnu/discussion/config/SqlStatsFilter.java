@@ -0,0 +1,237 @@
+package com.vishnu.discussion.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements, rows and database time of every request and reports them as response headers and as
+ * {@code sql.request.statements}, {@code sql.request.rows} and {@code sql.request.time} metrics tagged with the
+ * method and URI pattern.
+ * <p>
+ * A request that runs the same statement {@code discussion.sql.repeated-statement-threshold} times or more is logged
+ * as a likely N+1 and counted in {@code sql.request.repeated}. Headers are written just before the response commits,
+ * so a streamed response reports the statements that ran before its first bytes.
+ */
+@Slf4j
+public class SqlStatsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+    public static final String MAX_REPEATS_HEADER = "X-SQL-Max-Repeats";
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatedStatementThreshold;
+
+    public SqlStatsFilter(MeterRegistry meterRegistry, int repeatedStatementThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        SqlStats stats = new SqlStats();
+        request.setAttribute(SqlStats.ATTRIBUTE, stats);
+        StatsHeadersResponse statsResponse = new StatsHeadersResponse(response, stats);
+        SqlStats.bind(stats);
+        try {
+            chain.doFilter(request, statsResponse);
+        } finally {
+            SqlStats.unbind();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, stats);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                statsResponse.writeStatsHeaders();
+                record(request, stats);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+        DistributionSummary.builder("sql.request.statements")
+                .description("SQL statements run while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.statements());
+        DistributionSummary.builder("sql.request.rows")
+                .description("Result set rows read while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.rows());
+        Timer.builder("sql.request.time")
+                .description("Time spent executing SQL while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.nanos(), TimeUnit.NANOSECONDS);
+        Map.Entry<String, Long> mostRepeated = stats.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatedStatementThreshold) {
+            Counter.builder("sql.request.repeated")
+                    .description("Requests that ran one statement at least the repeated-statement threshold times")
+                    .tags("method", method, "uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Possible N+1: {} {} ran the same statement {} times ({} statements in total): {}",
+                    method, request.getRequestURI(), mostRepeated.getValue(), stats.statements(), mostRepeated.getKey());
+        }
+    }
+
+    // Adds the stats headers at the last moment they can still be set: before the first byte, flush or error
+    private static final class StatsHeadersResponse extends HttpServletResponseWrapper {
+        private final SqlStats stats;
+        private boolean headersWritten;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        StatsHeadersResponse(HttpServletResponse response, SqlStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        synchronized void writeStatsHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            Map.Entry<String, Long> mostRepeated = stats.mostRepeated();
+            setHeader(STATEMENTS_HEADER, Long.toString(stats.statements()));
+            setHeader(ROWS_HEADER, Long.toString(stats.rows()));
+            setHeader(TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.nanos())));
+            setHeader(MAX_REPEATS_HEADER, Long.toString(mostRepeated == null ? 0 : mostRepeated.getValue()));
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        writeStatsHeaders();
+                        delegate.write(b);
+                    }
+
+                    @Override
+                    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+                        writeStatsHeaders();
+                        delegate.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        writeStatsHeaders();
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writeStatsHeaders();
+                        delegate.close();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public synchronized PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                PrintWriter delegate = super.getWriter();
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(@NonNull char[] chars, int off, int len) {
+                        writeStatsHeaders();
+                        delegate.write(chars, off, len);
+                    }
+
+                    @Override
+                    public void flush() {
+                        writeStatsHeaders();
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() {
+                        writeStatsHeaders();
+                        delegate.close();
+                    }
+                });
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeStatsHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeStatsHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -1,26 +1,40 @@
 package com.vishnu.discussion.controllers;
 
 import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CursorPage;
 import com.vishnu.discussion.data.PostDto;
+import com.vishnu.discussion.data.PostSearchHit;
+import com.vishnu.discussion.data.TrendingPost;
 import com.vishnu.discussion.data.LikeDto;
 import com.vishnu.discussion.data.LikeResponse;
+import com.vishnu.discussion.event.ChangeStream;
 import com.vishnu.discussion.exception.CommentNotFoundException;
 import com.vishnu.discussion.exception.PostNotFoundException;
 import com.vishnu.discussion.service.CommentService;
 import com.vishnu.discussion.service.PostService;
 import com.vishnu.discussion.service.LikeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/posts")
 public class PostController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_LIKERS_PAGE_SIZE = 1000;
+    private static final int MAX_BULK_SIZE = 10000;
+
     @Autowired
     private PostService postService;
 
@@ -30,6 +44,12 @@ public class PostController {
     @Autowired
     private LikeService likeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeStream changeStream;
+
     @PostMapping("/create")
     public ResponseEntity<PostDto> createPost(@Valid @RequestBody PostDto postDto) {
         if (postDto.getUserId() == null) {
@@ -42,6 +62,16 @@ public class PostController {
         return new ResponseEntity<>(created, HttpStatus.CREATED);
     }
 
+    // For imports and backfills: creates up to MAX_BULK_SIZE posts, committed in chunks
+    @PostMapping("/bulk")
+    public ResponseEntity<List<PostDto>> createPosts(@RequestBody List<PostDto> postDtos) {
+        if (postDtos.isEmpty() || postDtos.size() > MAX_BULK_SIZE
+                || postDtos.stream().anyMatch(postDto -> postDto == null || postDto.getUserId() == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return new ResponseEntity<>(postService.createPosts(postDtos), HttpStatus.CREATED);
+    }
+
     @PutMapping("/{postId}/update")
     public ResponseEntity<PostDto> updatePost(@PathVariable("postId") Long postId,
             @Valid @RequestBody PostDto postDto) {
@@ -75,6 +105,70 @@ public class PostController {
         return ResponseEntity.ok(postService.getAllPostsWithComments());
     }
 
+    // Same posts as /all, one JSON document per line, written as rows are read instead of after the whole list
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPosts() {
+        StreamingResponseBody body = out -> postService.streamAllPosts(post -> {
+            try {
+                objectMapper.writeValue(out, post);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<PostDto>> getPostsPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(postService.getPostsPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<PostSearchHit>> searchPosts(@RequestParam("q") String q,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) throws IOException {
+        if (q.isBlank() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(postService.searchPosts(q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingPost>> getTrendingPosts(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postService.getTrendingPosts(limit));
+    }
+
+    // Post, like and comment changes as server-sent events, each with its sequence as id. A reconnecting client
+    // resumes after its Last-Event-ID, or after the sequence in ?after=; without either it gets new changes only
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(value = "after", required = false) Long after) throws IOException {
+        if (changeStream.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(changeStream.subscribe(lastEventId != null ? lastEventId : after));
+    }
+
     @DeleteMapping("/{postId}")
     public ResponseEntity<?> deletePostById(@PathVariable("postId") Long postId) {
         try {
@@ -108,6 +202,36 @@ public class PostController {
         }
     }
 
+    @PostMapping("/{postId}/comments/bulk")
+    public ResponseEntity<List<CommentDto>> addComments(@PathVariable("postId") Long postId,
+            @RequestBody List<CommentDto> commentDtos) {
+        if (commentDtos.isEmpty() || commentDtos.size() > MAX_BULK_SIZE || commentDtos.stream().anyMatch(
+                commentDto -> commentDto == null || commentDto.getContent() == null || commentDto.getContent().trim().isEmpty())) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(commentService.addCommentsToPost(postId, commentDtos));
+        } catch (PostNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{postId}/comments")
+    public ResponseEntity<CursorPage<CommentDto>> getComments(@PathVariable("postId") Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(commentService.getComments(postId, cursor, limit));
+        } catch (PostNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{postId}/comment/{commentId}")
     public ResponseEntity<?> deleteComment(@PathVariable("postId") Long postId,
             @PathVariable("commentId") Long commentId) {
@@ -139,6 +263,20 @@ public class PostController {
         }
     }
 
+    @GetMapping("/{postId}/likes")
+    public ResponseEntity<CursorPage<Integer>> getLikers(@PathVariable("postId") Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_LIKERS_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(likeService.getLikers(postId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{postId}/like")
     public ResponseEntity<LikeResponse> removeLike(@PathVariable("postId") Long postId,
             @Valid @RequestBody LikeDto likeDto) {
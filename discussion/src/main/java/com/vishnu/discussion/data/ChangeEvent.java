@@ -0,0 +1,17 @@
+package com.vishnu.discussion.data;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * An outbox event as delivered to subscribers. {@code data} is the changed post, comment or liker, embedded as the
+ * JSON it was stored as.
+ */
+public record ChangeEvent(long sequence, String type, Long postId, Instant createdAt, @JsonRawValue String data) {
+
+    public static ChangeEvent of(OutboxEvent event) {
+        return new ChangeEvent(event.getSequence(), event.getType(), event.getPostId(), event.getCreatedAt(),
+                event.getPayload());
+    }
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Setter
 @Getter
@@ -12,6 +14,8 @@ import lombok.Setter;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "comments")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comments")
 public class Comment {
 
     @Transient
@@ -22,8 +26,10 @@ public class Comment {
      * database.
      */
 
+    // Taken like the post ids, one at a time so comment pages stay in creation order, and inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comment_ids")
+    @SequenceGenerator(name = "comment_ids", sequenceName = "comment_ids", allocationSize = 1)
     private Long id;
 
     @Column(columnDefinition = "TEXT")
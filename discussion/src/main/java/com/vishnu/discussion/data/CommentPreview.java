@@ -0,0 +1,10 @@
+package com.vishnu.discussion.data;
+
+import java.util.List;
+
+/**
+ * The first comments of a post and how many it has in total.
+ */
+public record CommentPreview(int count, List<CommentDto> comments) {
+    public static final CommentPreview NONE = new CommentPreview(0, List.of());
+}
@@ -0,0 +1,27 @@
+package com.vishnu.discussion.data;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * How far one step of the outbox relay has got: the last sequence assigned, or the last one delivered to the webhook.
+ * The row is locked while the step runs, so only one instance of the service works on it at a time.
+ */
+@Getter
+@Setter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_cursors")
+public class OutboxCursor {
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private long position;
+}
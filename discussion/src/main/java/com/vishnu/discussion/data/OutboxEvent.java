@@ -0,0 +1,53 @@
+package com.vishnu.discussion.data;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A change to a post, its likes or its comments, written in the same transaction as the change itself and relayed to
+ * subscribers once committed (see {@code OutboxRelay}).
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_created_at", columnList = "created_at")
+})
+public class OutboxEvent {
+
+    // Taken like the post ids, so the outbox rows of a bulk import are batched along with the posts; one at a time,
+    // since the relay sequences events in id order and events of one post must not overtake each other
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_ids")
+    @SequenceGenerator(name = "outbox_ids", sequenceName = "outbox_ids", allocationSize = 1)
+    private Long id;
+
+    // Gap-free delivery order, assigned by the relay after commit; null until then
+    @Column(name = "seq", unique = true)
+    private Long sequence;
+
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    @Column(name = "post_id")
+    private Long postId;
+
+    // The changed post, comment or liker as JSON; null for deleted posts
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public OutboxEvent(String type, Long postId, String payload, Instant createdAt) {
+        this.type = type;
+        this.postId = postId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
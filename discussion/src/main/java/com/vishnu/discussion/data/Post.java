@@ -2,21 +2,35 @@ package com.vishnu.discussion.data;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.Instant;
 import java.util.List;
 
 
 @Getter
 @Setter
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_deleted_at", columnList = "deleted_at")
+})
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
+// Deleted posts are tombstones until PostPurger removes them; every JPA query and load skips them
+@SQLRestriction("deleted_at IS NULL")
 public class Post {
 
+    // Ids come from a one-row table on MySQL before the insert, so Hibernate can still batch post inserts (IDENTITY
+    // cannot be batched). They are taken one at a time: blocks pooled per instance would break the id order that
+    // keyset paging, the feed timeline and the outbox rely on once several instances write
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "post_ids")
+    @SequenceGenerator(name = "post_ids", sequenceName = "post_ids", allocationSize = 1)
     private Long id;
 
     @Column(columnDefinition = "TEXT")
@@ -29,8 +43,12 @@ public class Post {
     private Integer userId;
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "post-comments")
     private List<Comment> comments;
 
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     public Post(String content, Integer likes) {
 //        TODO check Integer
         this.content = content;
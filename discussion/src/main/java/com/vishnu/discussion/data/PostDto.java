@@ -15,7 +15,13 @@ public class PostDto {
     private Long id;
     private String content;
     private Integer likes;
-    private List<CommentDto> comments;
+    private List<CommentDto> comments; // The first comments only; the full thread is paged from /{postId}/comments
     private Integer userId;
     private List<Integer> likedBy; // List of user IDs who liked this post
+    private Integer commentCount;
+
+    public PostDto(Long id, String content, Integer likes, List<CommentDto> comments, Integer userId,
+                   List<Integer> likedBy) {
+        this(id, content, likes, comments, userId, likedBy, null);
+    }
 }
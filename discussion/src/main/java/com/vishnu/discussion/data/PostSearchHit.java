@@ -0,0 +1,7 @@
+package com.vishnu.discussion.data;
+
+/**
+ * A post matching a search, as stored in the search index, with its relevance score.
+ */
+public record PostSearchHit(Long id, String content, Integer userId, float score) {
+}
@@ -0,0 +1,12 @@
+package com.vishnu.discussion.data;
+
+/**
+ * Read-only view of a post's own columns, selected straight into this record by the {@code PostRepository}
+ * projection queries instead of loading managed {@link Post} entities.
+ */
+public record PostSummary(Long id, String content, Integer likes, Integer userId) {
+
+    public static PostSummary of(Post post) {
+        return new PostSummary(post.getId(), post.getContent(), post.getLikes(), post.getUserId());
+    }
+}
@@ -0,0 +1,8 @@
+package com.vishnu.discussion.data;
+
+/**
+ * A post that is hot right now: its decayed activity score and the likes and comments it received within the
+ * trending window.
+ */
+public record TrendingPost(Long postId, double score, int likes, int comments) {
+}
@@ -0,0 +1,201 @@
+package com.vishnu.discussion.event;
+
+import com.vishnu.discussion.data.ChangeEvent;
+import com.vishnu.discussion.data.OutboxCursor;
+import com.vishnu.discussion.repository.OutboxCursorRepository;
+import com.vishnu.discussion.repository.OutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent event subscribers of the outbox. Each event is sent with its sequence as the SSE id, so a client that
+ * reconnects with {@code Last-Event-ID} resumes where it left off and sees every event at least once.
+ * <p>
+ * {@link #poll} runs after each relay pass and queues up to {@code discussion.outbox.batch-size} events past each
+ * subscriber's position; subscribers at the same position share one query. Queued events are sent from a thread of
+ * their own while a subscriber has any, so a slow client never holds up the relay or the other clients. A subscriber
+ * with {@code discussion.outbox.sse.queue-size} events still unsent is dropped; it resumes from its
+ * {@code Last-Event-ID} when it reconnects. A client asking to resume from
+ * before the oldest event still retained first receives a {@code reset} event carrying the position it continues
+ * from, and has to re-read the posts it keeps.
+ */
+@Slf4j
+@Component
+public class ChangeStream {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxCursorRepository cursorRepository;
+    private final int batchSize;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+    private final int queueSize;
+    private final Executor senders;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public ChangeStream(OutboxRepository outboxRepository,
+                        OutboxCursorRepository cursorRepository,
+                        @Value("${discussion.outbox.batch-size:500}") int batchSize,
+                        @Value("${discussion.outbox.sse.timeout:30m}") Duration timeout,
+                        @Value("${discussion.outbox.sse.max-subscribers:1000}") int maxSubscribers,
+                        @Value("${discussion.outbox.sse.queue-size:2000}") int queueSize,
+                        MeterRegistry meterRegistry) {
+        // A thread only lives while its subscriber has events to send, so there are at most max-subscribers of them
+        this(outboxRepository, cursorRepository, batchSize, timeout, maxSubscribers, queueSize,
+                Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "discussion-change-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                meterRegistry);
+    }
+
+    ChangeStream(OutboxRepository outboxRepository, OutboxCursorRepository cursorRepository, int batchSize,
+                 Duration timeout, int maxSubscribers, int queueSize, Executor senders, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.cursorRepository = cursorRepository;
+        this.batchSize = batchSize;
+        this.timeoutMs = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.queueSize = queueSize;
+        this.senders = senders;
+        Gauge.builder("discussion.outbox.subscribers", subscribers, List::size)
+                .description("Clients connected to the post change stream")
+                .register(meterRegistry);
+    }
+
+    public boolean isFull() {
+        return subscribers.size() >= maxSubscribers;
+    }
+
+    /**
+     * Streams the events after sequence {@code after}, or only those still to come when it is null.
+     */
+    public SseEmitter subscribe(Long after) throws IOException {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        long head = cursorRepository.findById(OutboxRelay.SEQUENCER).map(OutboxCursor::getPosition).orElse(0L);
+        long position = after == null ? head : Math.min(after, head);
+        Long oldest = outboxRepository.findMinSequence();
+        long retainedFrom = oldest == null ? head : oldest - 1;
+        if (position < retainedFrom) {
+            log.info("Change stream subscriber asked for events after {}, the oldest retained is {}",
+                    position, retainedFrom + 1);
+            emitter.send(SseEmitter.event().name("reset").id(Long.toString(retainedFrom)).data(retainedFrom));
+            position = retainedFrom;
+        }
+        Subscriber subscriber = new Subscriber(emitter, position, queueSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<ChangeEvent>> pages = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            List<ChangeEvent> page = pages.computeIfAbsent(subscriber.position, after ->
+                    outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(after, Limit.of(batchSize)).stream()
+                            .map(ChangeEvent::of)
+                            .toList());
+            for (ChangeEvent event : page) {
+                if (!subscriber.queue.offer(event)) {
+                    log.info("Dropping change stream subscriber at {}, it has {} events unsent",
+                            subscriber.position, queueSize);
+                    // Completed by its sender: the emitter may be busy in a send this thread must not wait for
+                    subscribers.remove(subscriber);
+                    subscriber.dropped = true;
+                    subscriber.queue.clear();
+                    break;
+                }
+                subscriber.position = event.sequence();
+            }
+            if (!page.isEmpty()) {
+                send(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (senders instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            ChangeEvent event;
+            while (!subscriber.dropped && (event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.sequence()))
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+            if (subscriber.dropped) {
+                subscriber.closed = true;
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; it resumes from its last event id when it reconnects
+            log.debug("Dropping change stream subscriber at {}: {}", subscriber.position, e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.dropped = true;
+            subscriber.closed = true;
+            subscriber.queue.clear();
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // Whatever poll did while this sender was finishing would otherwise wait for the next poll, or forever
+        if (subscriber.dropped ? !subscriber.closed : !subscriber.queue.isEmpty()) {
+            send(subscriber);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<ChangeEvent> queue;
+        // Set while a sender drains the queue, so there is one at a time and events go out in order
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Last event queued; only advanced by poll, which runs on the relay's thread
+        private long position;
+        private volatile boolean dropped;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, long position, int queueSize) {
+            this.emitter = emitter;
+            this.position = position;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.vishnu.discussion.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vishnu.discussion.data.ChangeEvent;
+import com.vishnu.discussion.data.OutboxCursor;
+import com.vishnu.discussion.data.OutboxEvent;
+import com.vishnu.discussion.repository.OutboxCursorRepository;
+import com.vishnu.discussion.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drains the outbox written by {@link OutboxWriter} in batches of {@code discussion.outbox.batch-size}.
+ * <p>
+ * Every {@code discussion.outbox.relay-interval} ms it first numbers newly committed events: the sequence cursor row
+ * is locked, so across all instances sequences are assigned once, gap-free and increasing. Then it POSTs the events
+ * past each target's cursor as {@code {"after": ..., "upTo": ..., "events": [...]}} and moves the cursor to
+ * {@code upTo} only after a 2xx answer. {@code after} is where the previous batch ended, so a target that does not
+ * hold up to {@code after} knows it missed events. A failed or timed-out batch is sent again, and instances relaying
+ * at the same time may both send one, so targets must tolerate duplicates, which they can spot by sequence. The
+ * targets are:
+ * <ul>
+ *     <li>the webhook at {@code discussion.outbox.webhook.url}, when set, which receives every event;</li>
+ *     <li>the feed service's timeline at {@code discussion.timeline.url}, unless {@code discussion.timeline.enabled}
+ *     is false, which receives post creates, updates and deletes.</li>
+ * </ul>
+ * Last it hands over to the {@link ChangeStream} subscribers.
+ * <p>
+ * Sequenced events older than {@code discussion.outbox.retention} are purged, but never before every target has
+ * received them.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    static final String SEQUENCER = "sequencer";
+    static final String WEBHOOK = "webhook";
+    static final String TIMELINE = "timeline";
+
+    private static final Set<String> POST_CHANGES = Set.of(
+            PostEvent.Type.CREATED.name(), PostEvent.Type.UPDATED.name(), PostEvent.Type.DELETED.name());
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxCursorRepository cursorRepository;
+    private final ChangeStream changeStream;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<Target> targets = new ArrayList<>();
+    private final int batchSize;
+    private final Duration retention;
+    private final Clock clock;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       OutboxCursorRepository cursorRepository,
+                       ChangeStream changeStream,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       WebClient.Builder webClientBuilder,
+                       @Value("${discussion.outbox.webhook.url:}") String webhookUrl,
+                       @Value("${discussion.outbox.webhook.timeout:5s}") Duration webhookTimeout,
+                       @Value("${discussion.timeline.enabled:true}") boolean timelineEnabled,
+                       @Value("${discussion.timeline.url:http://feedservice/internal/timeline/events}") String timelineUrl,
+                       @Value("${discussion.timeline.timeout:5s}") Duration timelineTimeout,
+                       @Value("${discussion.outbox.batch-size:500}") int batchSize,
+                       @Value("${discussion.outbox.retention:7d}") Duration retention,
+                       MeterRegistry meterRegistry) {
+        // Only the timeline goes through the load-balanced builder: the webhook is an external URL, not a service in
+        // the registry
+        this(outboxRepository, cursorRepository, changeStream, transactionManager, objectMapper,
+                WebClient.builder().build(), webhookUrl, webhookTimeout,
+                webClientBuilder.build(), timelineEnabled ? timelineUrl : "", timelineTimeout,
+                batchSize, retention, Clock.systemUTC(), meterRegistry);
+    }
+
+    OutboxRelay(OutboxRepository outboxRepository, OutboxCursorRepository cursorRepository, ChangeStream changeStream,
+                PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                WebClient webhookClient, String webhookUrl, Duration webhookTimeout,
+                WebClient timelineClient, String timelineUrl, Duration timelineTimeout,
+                int batchSize, Duration retention, Clock clock, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.cursorRepository = cursorRepository;
+        this.changeStream = changeStream;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.clock = clock;
+        if (!webhookUrl.isEmpty()) {
+            targets.add(new Target(WEBHOOK, webhookClient, webhookUrl, webhookTimeout, null, meterRegistry));
+        }
+        if (!timelineUrl.isEmpty()) {
+            targets.add(new Target(TIMELINE, timelineClient, timelineUrl, timelineTimeout, POST_CHANGES,
+                    meterRegistry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.outbox.relay-interval:200}")
+    public void relay() {
+        while (transactionTemplate.execute(status -> sequenceBatch()) == batchSize) {
+            log.debug("Sequenced a full batch of outbox events, continuing");
+        }
+        for (Target target : targets) {
+            try {
+                while (deliverBatch(target) == batchSize) {
+                    log.debug("Delivered a full batch of outbox events to the {}, continuing", target.cursor());
+                }
+            } catch (RuntimeException e) {
+                target.failures().increment();
+                log.warn("Failed to deliver outbox events to {}: {}", target.url(), e.getMessage());
+            }
+        }
+        changeStream.poll();
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.outbox.purge-interval:3600000}",
+            initialDelayString = "${discussion.outbox.purge-interval:3600000}")
+    public void purge() {
+        Instant before = clock.instant().minus(retention);
+        long upTo = targets.stream()
+                .mapToLong(target -> cursorRepository.findById(target.cursor()).map(OutboxCursor::getPosition)
+                        .orElse(0L))
+                .min()
+                .orElse(Long.MAX_VALUE);
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    outboxRepository.deleteSequencedBefore(upTo, before, batchSize));
+            purged += deleted;
+        } while (deleted == batchSize);
+        if (purged > 0) {
+            log.info("Purged {} outbox events older than {}", purged, retention);
+        }
+    }
+
+    // Events are numbered in the order they were written; one that commits late just gets a later number
+    private int sequenceBatch() {
+        OutboxCursor cursor = lockCursor(SEQUENCER);
+        List<OutboxEvent> batch = outboxRepository.findBySequenceIsNullOrderByIdAsc(Limit.of(batchSize));
+        long sequence = cursor.getPosition();
+        for (OutboxEvent event : batch) {
+            event.setSequence(++sequence);
+        }
+        cursor.setPosition(sequence);
+        return batch.size();
+    }
+
+    // The batch is read and the cursor advanced in two short transactions; the POST in between holds neither a lock
+    // nor a connection. A cursor only moves once its batch was answered, so a batch is never sent before the ones
+    // ahead of it. Returns the number of events read, so that a full batch is followed by the next one straight away
+    private int deliverBatch(Target target) {
+        Batch batch = transactionTemplate.execute(status -> readBatch(target));
+        if (batch.upTo() <= batch.after()) {
+            return 0;
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(
+                    Map.of("after", batch.after(), "upTo", batch.upTo(), "events", batch.events()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox events", e);
+        }
+        target.client().post()
+                .uri(target.url())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .block(target.timeout());
+        transactionTemplate.executeWithoutResult(status -> {
+            OutboxCursor cursor = lockCursor(target.cursor());
+            // Another instance may have delivered the same events meanwhile; the cursor never moves back
+            if (cursor.getPosition() < batch.upTo()) {
+                cursor.setPosition(batch.upTo());
+            }
+        });
+        target.delivered().increment(batch.events().size());
+        return batch.events().size();
+    }
+
+    private Batch readBatch(Target target) {
+        // Read first: everything numbered up to here has committed, so a batch that is not full covers up to it
+        long sequenced = cursorRepository.findById(SEQUENCER).map(OutboxCursor::getPosition).orElse(0L);
+        long after = cursorRepository.findById(target.cursor()).map(OutboxCursor::getPosition).orElse(0L);
+        List<OutboxEvent> events = target.types() == null
+                ? outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(after, Limit.of(batchSize))
+                : outboxRepository.findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(after, target.types(),
+                Limit.of(batchSize));
+        List<ChangeEvent> batch = events.stream().map(ChangeEvent::of).toList();
+        long last = batch.isEmpty() ? after : batch.get(batch.size() - 1).sequence();
+        // A filtered target is still told when only other events went by, or the next batch would look like a gap
+        long upTo = batch.size() == batchSize ? last : Math.max(last, sequenced);
+        return new Batch(after, upTo, batch);
+    }
+
+    private OutboxCursor lockCursor(String name) {
+        return cursorRepository.findForUpdate(name).orElseGet(() -> {
+            cursorRepository.insertIfAbsent(name);
+            return cursorRepository.findForUpdate(name).orElseThrow();
+        });
+    }
+
+    private record Batch(long after, long upTo, List<ChangeEvent> events) {
+    }
+
+    /**
+     * A consumer the events are POSTed to, with its own cursor. {@code types} limits the events it receives; null
+     * means all of them.
+     */
+    private record Target(String cursor, WebClient client, String url, Duration timeout, Set<String> types,
+                          Counter delivered, Counter failures) {
+
+        Target(String cursor, WebClient client, String url, Duration timeout, Set<String> types,
+               MeterRegistry meterRegistry) {
+            this(cursor, client, url, timeout, types,
+                    Counter.builder("discussion.outbox.delivered")
+                            .description("Outbox events accepted by a delivery target")
+                            .tag("target", cursor)
+                            .register(meterRegistry),
+                    Counter.builder("discussion.outbox.delivery.failures")
+                            .description("Outbox batches a delivery target failed to accept; they are sent again")
+                            .tag("target", cursor)
+                            .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.vishnu.discussion.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vishnu.discussion.data.OutboxEvent;
+import com.vishnu.discussion.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+
+/**
+ * Records every post change, like and comment in the outbox. The listeners run synchronously inside the publishing
+ * service's transaction, so an event is stored if and only if its change commits; {@link OutboxRelay} delivers it
+ * from there.
+ */
+@Component
+public class OutboxWriter {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Autowired
+    public OutboxWriter(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this(outboxRepository, objectMapper, Clock.systemUTC());
+    }
+
+    OutboxWriter(OutboxRepository outboxRepository, ObjectMapper objectMapper, Clock clock) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    @EventListener
+    public void onPostEvent(PostEvent event) {
+        append(event.type().name(), event.postId(), event.post());
+    }
+
+    @EventListener
+    public void onPostActivity(PostActivityEvent event) {
+        append(event.type().name(), event.postId(),
+                event.comment() != null ? event.comment() : Map.of("userId", event.userId()));
+    }
+
+    private void append(String type, Long postId, Object data) {
+        String payload;
+        try {
+            payload = data == null ? null : objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            // Failing the change is better than committing it without its event
+            throw new IllegalStateException("Failed to serialize " + type + " event for post " + postId, e);
+        }
+        outboxRepository.save(new OutboxEvent(type, postId, payload, clock.instant()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.vishnu.discussion.event;
+
+import com.vishnu.discussion.data.CommentDto;
+
+/**
+ * Published when someone engages with a post. Unlike {@link PostEvent}, the post itself is unchanged, so these are not
+ * pushed to the feed timeline. Likes carry the user, comments the comment. Comments added by a bulk import are
+ * {@code COMMENT_IMPORTED}, so that backfills are recorded without counting as fresh activity.
+ */
+public record PostActivityEvent(Type type, Long postId, Integer userId, CommentDto comment) {
+
+    public enum Type {
+        LIKED,
+        UNLIKED,
+        COMMENTED,
+        COMMENT_IMPORTED,
+        COMMENT_DELETED
+    }
+
+    public static PostActivityEvent liked(Long postId, Integer userId) {
+        return new PostActivityEvent(Type.LIKED, postId, userId, null);
+    }
+
+    public static PostActivityEvent unliked(Long postId, Integer userId) {
+        return new PostActivityEvent(Type.UNLIKED, postId, userId, null);
+    }
+
+    public static PostActivityEvent commented(Long postId, CommentDto comment) {
+        return new PostActivityEvent(Type.COMMENTED, postId, null, comment);
+    }
+
+    public static PostActivityEvent commentImported(Long postId, CommentDto comment) {
+        return new PostActivityEvent(Type.COMMENT_IMPORTED, postId, null, comment);
+    }
+
+    public static PostActivityEvent commentDeleted(Long postId, CommentDto comment) {
+        return new PostActivityEvent(Type.COMMENT_DELETED, postId, null, comment);
+    }
+}
@@ -0,0 +1,27 @@
+package com.vishnu.discussion.event;
+
+import com.vishnu.discussion.data.PostDto;
+
+/**
+ * Published by the services whenever a post changes, so that derived read models can be updated incrementally.
+ */
+public record PostEvent(Type type, Long postId, PostDto post) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static PostEvent created(PostDto post) {
+        return new PostEvent(Type.CREATED, post.getId(), post);
+    }
+
+    public static PostEvent updated(PostDto post) {
+        return new PostEvent(Type.UPDATED, post.getId(), post);
+    }
+
+    public static PostEvent deleted(Long postId) {
+        return new PostEvent(Type.DELETED, postId, null);
+    }
+}
@@ -1,9 +1,51 @@
 package com.vishnu.discussion.repository;
 
 import com.vishnu.discussion.data.Comment;
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CommentPreview;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+
+    // Keyset pagination of a post's thread: oldest first, seeking past the last id of the previous page
+    List<Comment> findByPostIdAndIdGreaterThanOrderByIdAsc(Long postId, Long id, Limit limit);
+
+    // (postId, id, content, authorName, commentCount) of the first :limit comments of each post. Only those rows
+    // leave the database, however long the threads are.
+    @Query(value = "SELECT post_id, id, content, author_name, comment_count FROM ("
+            + "SELECT c.post_id, c.id, c.content, c.author_name, "
+            + "ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.id) AS row_num, "
+            + "COUNT(*) OVER (PARTITION BY c.post_id) AS comment_count "
+            + "FROM comments c WHERE c.post_id IN (:postIds)) ranked "
+            + "WHERE row_num <= :limit ORDER BY post_id, id", nativeQuery = true)
+    List<Object[]> findPreviewRowsByPostIdIn(@Param("postIds") Collection<Long> postIds, @Param("limit") int limit);
+
+    /**
+     * Comment counts and the first {@code limit} comments of every post in {@code postIds} with a single query,
+     * keyed by post id. Posts without comments are absent.
+     */
+    default Map<Long, CommentPreview> findPreviewsByPostIdIn(Collection<Long> postIds, int limit) {
+        Map<Long, CommentPreview> previews = new HashMap<>();
+        if (postIds.isEmpty()) {
+            return previews;
+        }
+        for (Object[] row : findPreviewRowsByPostIdIn(postIds, limit)) {
+            previews.computeIfAbsent(((Number) row[0]).longValue(),
+                            postId -> new CommentPreview(((Number) row[4]).intValue(), new ArrayList<>()))
+                    .comments()
+                    .add(new CommentDto(((Number) row[1]).longValue(), (String) row[2], (String) row[3]));
+        }
+        return previews;
+    }
 }
@@ -1,12 +1,19 @@
 package com.vishnu.discussion.repository;
 
 import com.vishnu.discussion.data.Like;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -21,4 +28,46 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     List<Integer> findUserIdsByPostId(@Param("postId") Long postId);
 
     void deleteByPostIdAndUserId(Long postId, Integer userId);
+
+    // Relies on the (postId, userId) unique key: a repeated like inserts nothing, as does a like of a missing post,
+    // which fails the foreign key. Deleted posts are not checked here; callers read the post first, without locking
+    // its row, which the like counter's flush keeps updating.
+    // Returns the number of rows inserted. Native writes name the tables they touch, otherwise Hibernate clears the
+    // whole second-level cache after each one.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "likes"))
+    @Query(value = "INSERT IGNORE INTO likes (post_id, user_id) VALUES (:postId, :userId)", nativeQuery = true)
+    int insertIfAbsent(@Param("postId") Long postId, @Param("userId") Integer userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "likes"))
+    @Query(value = "DELETE FROM likes WHERE post_id = :postId AND user_id = :userId", nativeQuery = true)
+    int deleteIfPresent(@Param("postId") Long postId, @Param("userId") Integer userId);
+
+    // (postId, userId) rows for a batch of posts, with each post's likers contiguous and in like order
+    @Query("SELECT l.postId, l.userId FROM Like l WHERE l.postId IN :postIds ORDER BY l.postId, l.id")
+    List<Object[]> findPostIdAndUserIdByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    /**
+     * Likers of every post in {@code postIds} with a single query, keyed by post id. Posts without likes are absent.
+     */
+    default Map<Long, int[]> findUserIdsByPostIdIn(Collection<Long> postIds) {
+        Map<Long, int[]> likers = new HashMap<>();
+        if (postIds.isEmpty()) {
+            return likers;
+        }
+        List<Object[]> rows = findPostIdAndUserIdByPostIdIn(postIds);
+        int start = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i == rows.size() || !rows.get(i)[0].equals(rows.get(start)[0])) {
+                int[] userIds = new int[i - start];
+                for (int j = start; j < i; j++) {
+                    userIds[j - start] = (Integer) rows.get(j)[1];
+                }
+                likers.put((Long) rows.get(start)[0], userIds);
+                start = i;
+            }
+        }
+        return likers;
+    }
 }
@@ -0,0 +1,30 @@
+package com.vishnu.discussion.repository;
+
+import com.vishnu.discussion.data.OutboxCursor;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxCursorRepository extends JpaRepository<OutboxCursor, String> {
+
+    // SELECT ... FOR UPDATE: other instances wait here until the holder's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM OutboxCursor c WHERE c.name = :name")
+    Optional<OutboxCursor> findForUpdate(@Param("name") String name);
+
+    // Instances starting together may both find the cursor missing; only one insert takes effect
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "outbox_cursors"))
+    @Query(value = "INSERT IGNORE INTO outbox_cursors (name, position) VALUES (:name, 0)", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+}
@@ -0,0 +1,38 @@
+package com.vishnu.discussion.repository;
+
+import com.vishnu.discussion.data.OutboxEvent;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Committed events still waiting for a sequence, in the order they were written
+    List<OutboxEvent> findBySequenceIsNullOrderByIdAsc(Limit limit);
+
+    List<OutboxEvent> findBySequenceGreaterThanOrderBySequenceAsc(Long sequence, Limit limit);
+
+    List<OutboxEvent> findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(Long sequence, Collection<String> types,
+                                                                           Limit limit);
+
+    @Query("SELECT MIN(e.sequence) FROM OutboxEvent e")
+    Long findMinSequence();
+
+    // Deletes up to limit sequenced events that are older than before and no later than upTo
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "outbox_events"))
+    @Query(value = "DELETE FROM outbox_events WHERE seq <= :upTo AND created_at < :before ORDER BY seq LIMIT :limit",
+            nativeQuery = true)
+    int deleteSequencedBefore(@Param("upTo") long upTo, @Param("before") Instant before, @Param("limit") int limit);
+}
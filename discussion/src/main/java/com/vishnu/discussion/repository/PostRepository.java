@@ -1,23 +1,64 @@
 package com.vishnu.discussion.repository;
 
 import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.data.PostSummary;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional
 public interface PostRepository extends JpaRepository<Post, Long> {
-    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.comments")
-    List<Post> findAllWithComments();
-
-    List<Post> findAllByUserId(Integer userId);
-
     @Query("SELECT p FROM Post p WHERE p.likes > 2")
     List<Post> findAllWithMoreLikes();
 
     List<Post> findByContentStartingWith(String prefix);
+
+    // Persisted like count of a post, empty if the post does not exist
+    @Query("SELECT COALESCE(p.likes, 0) FROM Post p WHERE p.id = :postId")
+    Optional<Integer> findLikesById(@Param("postId") Long postId);
+
+    // Those of postIds whose posts exist and are not deleted
+    @Query("SELECT p.id FROM Post p WHERE p.id IN :postIds")
+    List<Long> findIdsByIdIn(@Param("postIds") Collection<Long> postIds);
+
+    // Read-only projections: rows are selected straight into PostSummary records, so no entities, proxies or
+    // dirty-checking snapshots are created and the second-level cache is not involved
+
+    @Query("SELECT new com.vishnu.discussion.data.PostSummary(p.id, p.content, p.likes, p.userId) FROM Post p")
+    List<PostSummary> findAllSummaries();
+
+    @Query("SELECT new com.vishnu.discussion.data.PostSummary(p.id, p.content, p.likes, p.userId) FROM Post p "
+            + "WHERE p.userId = :userId")
+    List<PostSummary> findSummariesByUserId(@Param("userId") Integer userId);
+
+    // Keyset pagination: newest first, seeking past the last id of the previous page
+    @Query("SELECT new com.vishnu.discussion.data.PostSummary(p.id, p.content, p.likes, p.userId) FROM Post p "
+            + "ORDER BY p.id DESC")
+    List<PostSummary> findSummariesOrderByIdDesc(Limit limit);
+
+    @Query("SELECT new com.vishnu.discussion.data.PostSummary(p.id, p.content, p.likes, p.userId) FROM Post p "
+            + "WHERE p.id < :id ORDER BY p.id DESC")
+    List<PostSummary> findSummariesByIdLessThanOrderByIdDesc(@Param("id") Long id, Limit limit);
+
+    // Rows are pulled from the driver in batches of the fetch size instead of being materialized up front
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.vishnu.discussion.data.PostSummary(p.id, p.content, p.likes, p.userId) FROM Post p "
+            + "ORDER BY p.id DESC")
+    Stream<PostSummary> streamAllSummariesOrderByIdDesc();
+
+    // Highest id in the table, counting deleted posts that have not been purged yet; null when there are none
+    @Query(value = "SELECT MAX(id) FROM posts", nativeQuery = true)
+    Long findHighestId();
 }
@@ -2,7 +2,9 @@ package com.vishnu.discussion.service;
 
 import com.vishnu.discussion.data.Comment;
 import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CursorPage;
 import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.event.PostActivityEvent;
 import com.vishnu.discussion.exception.CommentAdditionException;
 import com.vishnu.discussion.exception.CommentNotFoundException;
 import com.vishnu.discussion.exception.PostNotFoundException;
@@ -10,7 +12,15 @@ import com.vishnu.discussion.repository.CommentRepository;
 import com.vishnu.discussion.repository.PostRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class CommentService {
@@ -20,6 +30,18 @@ public class CommentService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private PostCache postCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${discussion.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Transactional
     public CommentDto addCommentToPost(Long postId, CommentDto commentDto) {
         Post post = postRepository.findById(postId)
@@ -31,16 +53,78 @@ public class CommentService {
         comment.setPost(post);
         try {
             Comment savedComment = commentRepository.save(comment);
-            return mapToDto(savedComment);
+            postCache.evictComment(savedComment.getId(), postId);
+            CommentDto added = mapToDto(savedComment);
+            eventPublisher.publishEvent(PostActivityEvent.commented(postId, added));
+            return added;
         } catch (Exception e) {
             throw new CommentAdditionException("Failed to add comment to a post : " + post.getContent(), e);
         }
     }
 
+    /**
+     * Adds comments to a post in chunks of {@code discussion.bulk.chunk-size}, each committed in its own transaction
+     * and inserted with JDBC batches. A failing chunk is rolled back on its own; the chunks before it stay committed.
+     */
+    public List<CommentDto> addCommentsToPost(Long postId, List<CommentDto> commentDtos) {
+        if (!postRepository.existsById(postId)) {
+            throw new PostNotFoundException("Post not found");
+        }
+        List<CommentDto> added = new ArrayList<>(commentDtos.size());
+        for (int from = 0; from < commentDtos.size(); from += bulkChunkSize) {
+            List<CommentDto> chunk = commentDtos.subList(from, Math.min(from + bulkChunkSize, commentDtos.size()));
+            try {
+                added.addAll(transactionTemplate.execute(status -> addChunk(postId, chunk)));
+            } catch (RuntimeException e) {
+                throw new CommentAdditionException("Failed to add comments to post " + postId + " after "
+                        + added.size() + " of " + commentDtos.size() + " were added", e);
+            }
+        }
+        return added;
+    }
+
+    private List<CommentDto> addChunk(Long postId, List<CommentDto> chunk) {
+        postCache.skipPutsInCurrentTransaction();
+        // A reference is enough to set the foreign key; the post row is not read again
+        Post post = postRepository.getReferenceById(postId);
+        List<Comment> comments = chunk.stream()
+                .map(commentDto -> new Comment(commentDto.getContent(), commentDto.getAuthorName(), post))
+                .toList();
+        List<CommentDto> added = commentRepository.saveAll(comments).stream().map(this::mapToDto).toList();
+        postCache.evictComment(null, postId);
+        added.forEach(comment -> eventPublisher.publishEvent(PostActivityEvent.commentImported(postId, comment)));
+        return added;
+    }
+
+    /**
+     * A page of the post's comments, oldest first, starting after {@code cursor}.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by this method
+     */
+    @Transactional
+    public CursorPage<CommentDto> getComments(Long postId, String cursor, int limit) {
+        if (!postRepository.existsById(postId)) {
+            throw new PostNotFoundException("Post not found");
+        }
+        Long afterId = Cursors.decodeId(cursor);
+        // Fetch one extra row to know whether another page exists without a COUNT query
+        List<Comment> rows = commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(
+                postId, afterId == null ? 0L : afterId, Limit.of(limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<Comment> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? Cursors.encodeId(page.get(page.size() - 1).getId()) : null;
+        return new CursorPage<>(page.stream().map(this::mapToDto).toList(), nextCursor);
+    }
+
     @Transactional
     public void deleteCommentById(Long commentId) throws CommentNotFoundException {
-        if (commentRepository.findById(commentId).isPresent()) {
+        Optional<Comment> comment = commentRepository.findById(commentId);
+        if (comment.isPresent()) {
             commentRepository.deleteById(commentId);
+            Post post = comment.get().getPost();
+            Long postId = post == null ? null : post.getId();
+            postCache.evictComment(commentId, postId);
+            eventPublisher.publishEvent(PostActivityEvent.commentDeleted(postId, mapToDto(comment.get())));
         } else {
             throw new CommentNotFoundException("No comment present to Delete");
         }
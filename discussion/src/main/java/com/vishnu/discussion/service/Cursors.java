@@ -0,0 +1,44 @@
+package com.vishnu.discussion.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, URL-safe cursors so clients cannot rely on their format.
+ */
+public final class Cursors {
+
+    private Cursors() {
+    }
+
+    public static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded position, or null for a missing cursor
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(String)}
+     */
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    public static String encodeId(long id) {
+        return encode(Long.toString(id));
+    }
+
+    public static Long decodeId(String cursor) {
+        String position = decode(cursor);
+        if (position == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
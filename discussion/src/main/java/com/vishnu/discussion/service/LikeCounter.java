@@ -0,0 +1,152 @@
+package com.vishnu.discussion.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind counter for {@code posts.likes}.
+ * <p>
+ * Likes and unlikes only add to a per-post {@link LongAdder}, so concurrent likers of one post never wait on each
+ * other or on its row. Pending deltas are written in one batched {@code UPDATE ... SET likes = likes + ?} per flush,
+ * and {@link #current} returns the persisted count plus whatever is still pending.
+ * <p>
+ * The count can drift from the {@code likes} table (a crash before a flush, a direct write of {@code posts.likes});
+ * {@link #reconcile} recomputes drifted posts from the table.
+ */
+@Slf4j
+@Component
+public class LikeCounter {
+    private static final String FLUSH_SQL = "UPDATE posts SET likes = COALESCE(likes, 0) + ? WHERE id = ?";
+    private static final String DRIFT_SQL = "SELECT p.id, COALESCE(p.likes, 0), COUNT(l.id) FROM posts p "
+            + "LEFT JOIN likes l ON l.post_id = p.id WHERE p.deleted_at IS NULL GROUP BY p.id, p.likes "
+            + "HAVING COALESCE(p.likes, 0) <> COUNT(l.id)";
+    // Only overwrites a count that has not been flushed to since it was read
+    private static final String REPAIR_SQL = "UPDATE posts SET likes = ? WHERE id = ? AND COALESCE(likes, 0) = ?";
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // Likes whose transaction has not ended yet: their row may be committed before their delta is pending
+    private final Map<Long, Integer> inFlight = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final PostCache postCache;
+    private final Counter flushedPosts;
+    private final Counter repairedPosts;
+
+    public LikeCounter(JdbcTemplate jdbcTemplate, PostCache postCache, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postCache = postCache;
+        this.flushedPosts = Counter.builder("discussion.likes.flushed")
+                .description("Post like counts written by the write-behind flush")
+                .register(meterRegistry);
+        this.repairedPosts = Counter.builder("discussion.likes.reconciled")
+                .description("Post like counts repaired by reconciliation")
+                .register(meterRegistry);
+        Gauge.builder("discussion.likes.pending", pending, Map::size)
+                .description("Posts with like deltas waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds {@code delta} to the post's count once the current transaction commits (right away without one), so a
+     * rolled-back like is never counted.
+     */
+    public void add(Long postId, int delta) {
+        inFlight.merge(postId, 1, Integer::sum);
+        AfterCommit.run(() -> accumulate(postId, delta),
+                () -> inFlight.computeIfPresent(postId, (id, count) -> count == 1 ? null : count - 1));
+    }
+
+    /**
+     * The persisted count plus the deltas not flushed yet.
+     */
+    public int current(Long postId, Integer persisted) {
+        LongAdder delta = pending.get(postId);
+        long count = (persisted == null ? 0 : persisted) + (delta == null ? 0 : delta.sum());
+        return (int) Math.max(0, count);
+    }
+
+    private void accumulate(Long postId, long delta) {
+        pending.compute(postId, (id, adder) -> {
+            LongAdder accumulator = adder == null ? new LongAdder() : adder;
+            accumulator.add(delta);
+            return accumulator;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.likes.flush-interval:1000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pending.forEach((postId, adder) -> {
+            long delta = adder.sum();
+            if (delta == 0) {
+                // Retired under the same lock as accumulate, so a delta landing meanwhile keeps the accumulator
+                pending.compute(postId, (id, current) -> current == null || current.sum() == 0 ? null : current);
+            } else {
+                // Subtracting what was read keeps increments that land while flushing for the next round
+                adder.add(-delta);
+                batch.add(new Object[]{delta, postId});
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush like counts for {} posts, retrying on the next flush", batch.size(), e);
+            batch.forEach(row -> accumulate((Long) row[1], (Long) row[0]));
+            return;
+        }
+        flushedPosts.increment(batch.size());
+        // Cached posts still hold the count from before the flush
+        postCache.evictPosts(batch.stream().map(row -> (Long) row[1]).toList());
+    }
+
+    // Pending deltas only live in memory; without a last flush a restart would lose them until reconciliation
+    @PreDestroy
+    public void close() {
+        flush();
+        long unflushed = pending.values().stream().filter(delta -> delta.sum() != 0).count();
+        if (unflushed > 0) {
+            log.warn("Shutting down with like counts of {} posts not flushed, reconciliation will repair them",
+                    unflushed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.likes.reconcile-interval:600000}",
+            initialDelayString = "${discussion.likes.reconcile-interval:600000}")
+    public synchronized void reconcile() {
+        flush();
+        List<Object[]> repairs = new ArrayList<>();
+        jdbcTemplate.query(DRIFT_SQL, rs -> {
+            long postId = rs.getLong(1);
+            // Posts with deltas pending or about to be are being liked right now; they are picked up by a later run
+            LongAdder delta = pending.get(postId);
+            if ((delta == null || delta.sum() == 0) && !inFlight.containsKey(postId)) {
+                repairs.add(new Object[]{rs.getLong(3), postId, rs.getLong(2)});
+            }
+        });
+        if (!repairs.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(REPAIR_SQL, repairs);
+            postCache.evictPosts(repairs.stream().map(row -> (Long) row[1]).toList());
+            long repaired = Arrays.stream(updated)
+                    .filter(rows -> rows > 0 || rows == Statement.SUCCESS_NO_INFO)
+                    .count();
+            repairedPosts.increment(repaired);
+            log.info("Reconciled like counts of {} posts", repaired);
+        }
+    }
+}
@@ -1,16 +1,17 @@
 package com.vishnu.discussion.service;
 
-import com.vishnu.discussion.data.Like;
-import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.data.CursorPage;
+import com.vishnu.discussion.event.PostActivityEvent;
 import com.vishnu.discussion.repository.LikeRepository;
 import com.vishnu.discussion.repository.PostRepository;
 import com.vishnu.discussion.exception.PostNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -22,67 +23,85 @@ public class LikeService {
     @Autowired
     private PostRepository postRepository;
 
-    @Transactional
+    @Autowired
+    private LikeCounter likeCounter;
+
+    @Autowired
+    private LikerIndex likerIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public boolean isPostLikedByUser(Long postId, Integer userId) {
-        return likeRepository.findByPostIdAndUserId(postId, userId).isPresent();
+        return likerIndex.contains(postId, userId);
     }
 
-    @Transactional
     public int getLikeCount(Long postId) {
-        return likeRepository.countByPostId(postId);
+        return likerIndex.count(postId);
     }
 
+    /**
+     * A page of the post's liker ids in ascending order, starting after {@code cursor}.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by this method
+     */
+    public CursorPage<Integer> getLikers(Long postId, String cursor, int limit) {
+        Long after = Cursors.decodeId(cursor);
+        if (after != null && (after < 0 || after > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // One extra id tells whether another page exists
+        List<Integer> userIds = likerIndex.page(postId, after == null ? null : after.intValue(), limit + 1);
+        boolean hasMore = userIds.size() > limit;
+        List<Integer> page = hasMore ? userIds.subList(0, limit) : userIds;
+        return new CursorPage<>(page, hasMore ? Cursors.encodeId(page.get(page.size() - 1)) : null);
+    }
+
+    /**
+     * Idempotent like in two statements: a read of the persisted count, which also tells that the post exists, and
+     * an insert-if-absent.
+     */
     @Transactional
     public int addLike(Long postId, Integer userId) {
         log.info("Adding like for post {} by user {}", postId, userId);
 
-        // Check if post exists
-        Post post = postRepository.findById(postId)
+        // A plain read: a locking one would queue behind the like counter's flush of this post's row
+        int persisted = postRepository.findLikesById(postId)
                 .orElseThrow(() -> new PostNotFoundException("Post not found"));
-
-        // Check if user already liked this post
-        Optional<Like> existingLike = likeRepository.findByPostIdAndUserId(postId, userId);
-        if (existingLike.isPresent()) {
+        boolean added = likeRepository.insertIfAbsent(postId, userId) == 1;
+        if (!added) {
             log.info("User {} already liked post {}", userId, postId);
-            return getLikeCount(postId);
+            return likeCounter.current(postId, persisted);
         }
 
-        // Create new like
-        Like like = new Like(postId, userId);
-        likeRepository.save(like);
-
-        // Update like count in post
-        int newLikeCount = getLikeCount(postId);
-        post.setLikes(newLikeCount);
-        postRepository.save(post);
-
+        // The post's row is updated by the write-behind counter, not per like
+        likeCounter.add(postId, 1);
+        likerIndex.add(postId, userId);
+        eventPublisher.publishEvent(PostActivityEvent.liked(postId, userId));
+        int newLikeCount = likeCounter.current(postId, persisted) + 1;
         log.info("Like added successfully. New count: {}", newLikeCount);
         return newLikeCount;
     }
 
+    /**
+     * Idempotent unlike in two statements: a delete and a read of the persisted count.
+     */
     @Transactional
     public int removeLike(Long postId, Integer userId) {
         log.info("Removing like for post {} by user {}", postId, userId);
 
-        // Check if post exists
-        Post post = postRepository.findById(postId)
+        boolean removed = likeRepository.deleteIfPresent(postId, userId) == 1;
+        int persisted = postRepository.findLikesById(postId)
                 .orElseThrow(() -> new PostNotFoundException("Post not found"));
-
-        // Check if user has liked this post
-        Optional<Like> existingLike = likeRepository.findByPostIdAndUserId(postId, userId);
-        if (existingLike.isEmpty()) {
+        if (!removed) {
             log.info("User {} has not liked post {}", userId, postId);
-            return getLikeCount(postId);
+            return likeCounter.current(postId, persisted);
         }
 
-        // Remove like
-        likeRepository.deleteByPostIdAndUserId(postId, userId);
-
-        // Update like count in post
-        int newLikeCount = getLikeCount(postId);
-        post.setLikes(newLikeCount);
-        postRepository.save(post);
-
+        likeCounter.add(postId, -1);
+        likerIndex.remove(postId, userId);
+        eventPublisher.publishEvent(PostActivityEvent.unliked(postId, userId));
+        int newLikeCount = Math.max(0, likeCounter.current(postId, persisted) - 1);
         log.info("Like removed successfully. New count: {}", newLikeCount);
         return newLikeCount;
     }
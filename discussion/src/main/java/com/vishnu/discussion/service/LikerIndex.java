@@ -0,0 +1,274 @@
+package com.vishnu.discussion.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vishnu.discussion.config.ReadReplicaDataSource;
+import com.vishnu.discussion.exception.PostNotFoundException;
+import com.vishnu.discussion.repository.LikeRepository;
+import com.vishnu.discussion.repository.PostRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory index of who liked which post: one compressed bitmap of liker user ids per post.
+ * <p>
+ * Posts are loaded from the {@code likes} table the first time they are asked for (misses of a batch with one query
+ * per {@link #LOAD_BATCH_SIZE} posts, after checking they exist) and then kept current by {@link #add}/{@link #remove}, so membership,
+ * counts and paged liker listings are answered without SQL. Each post is weighted by its serialized bitmap size
+ * and the least recently used posts are evicted once {@code discussion.likers.index.maximum-bytes} is reached.
+ * The total is the {@code discussion.likers.index.bytes} gauge and the per-post sizes are recorded by the
+ * {@code discussion.likers.index.post.bytes} summary.
+ */
+@Slf4j
+@Component
+public class LikerIndex {
+    private static final String CACHE_NAME = "discussion.likers";
+    // Upper bound on post ids per likers query, to keep the IN list of full-table reads reasonable
+    private static final int LOAD_BATCH_SIZE = 1000;
+    // Posts share a change counter when their ids are equal modulo this; more stripes mean fewer needless reloads
+    private static final int VERSION_STRIPES = 1024;
+
+    private final LikeRepository likeRepository;
+    private final PostRepository postRepository;
+    private final TransactionTemplate primaryTransaction;
+    private final Cache<Long, Likers> cache;
+    private final DistributionSummary postBytes;
+    // Bumped by every applied like, unlike and invalidation of a post in the stripe, so a load that raced a change of
+    // that post is not cached with the old likers, while loads of other posts are unaffected
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public LikerIndex(LikeRepository likeRepository,
+                      PostRepository postRepository,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${discussion.likers.index.maximum-bytes:67108864}") long maximumBytes,
+                      @Value("${discussion.likers.index.expire-after-access:1h}") Duration expireAfterAccess,
+                      MeterRegistry meterRegistry) {
+        this.likeRepository = likeRepository;
+        this.postRepository = postRepository;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Long postId, Likers likers) -> likers.sizeInBytes())
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.postBytes = DistributionSummary.builder("discussion.likers.index.post.bytes")
+                .description("Size of a post's liker bitmap when it is loaded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("discussion.likers.index.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Total size of the liker bitmaps held in memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws PostNotFoundException if the post does not exist or is deleted, as do the other single-post reads
+     */
+    public boolean contains(Long postId, int userId) {
+        return likersOf(postId).contains(userId);
+    }
+
+    public int count(Long postId) {
+        return likersOf(postId).cardinality();
+    }
+
+    /**
+     * Up to {@code limit} liker ids of a post in ascending order, starting after {@code afterUserId} (from the
+     * lowest id when null).
+     */
+    public List<Integer> page(Long postId, Integer afterUserId, int limit) {
+        return likersOf(postId).page(afterUserId, limit);
+    }
+
+    /**
+     * All liker ids of a post in ascending order.
+     */
+    public int[] userIds(Long postId) {
+        return likersOf(postId).toArray();
+    }
+
+    /**
+     * Liker ids of each of {@code postIds} in ascending order; posts without likes, and posts that do not exist,
+     * map to an empty array.
+     */
+    public Map<Long, int[]> userIds(Collection<Long> postIds) {
+        Map<Long, Likers> likers = likersOf(postIds);
+        Map<Long, int[]> userIds = new HashMap<>();
+        postIds.forEach(postId -> userIds.put(postId,
+                likers.containsKey(postId) ? likers.get(postId).toArray() : new int[0]));
+        return userIds;
+    }
+
+    /**
+     * Records a like once the current transaction commits (right away without one).
+     */
+    public void add(Long postId, int userId) {
+        AfterCommit.run(() -> apply(postId, likers -> likers.add(userId)));
+    }
+
+    /**
+     * Records an unlike once the current transaction commits (right away without one).
+     */
+    public void remove(Long postId, int userId) {
+        AfterCommit.run(() -> apply(postId, likers -> likers.remove(userId)));
+    }
+
+    /**
+     * Drops a post once the current transaction commits (right away without one).
+     */
+    public void invalidate(Long postId) {
+        AfterCommit.run(() -> {
+            versions.incrementAndGet(stripe(postId));
+            cache.invalidate(postId);
+        });
+    }
+
+    // Posts that are not loaded are left alone: their next load reads the change from the table.
+    // Going through the map re-weighs the entry, since the bitmap may have grown or shrunk.
+    private void apply(Long postId, UnaryOperator<Likers> change) {
+        versions.incrementAndGet(stripe(postId));
+        cache.asMap().computeIfPresent(postId, (id, likers) -> change.apply(likers));
+    }
+
+    private Likers likersOf(Long postId) {
+        Likers likers = likersOf(List.of(postId)).get(postId);
+        if (likers == null) {
+            throw new PostNotFoundException("Post not found");
+        }
+        return likers;
+    }
+
+    // Posts that do not exist are left out, so they are never cached
+
+    private Map<Long, Likers> likersOf(Collection<Long> postIds) {
+        Map<Long, Likers> likers = new HashMap<>(cache.getAllPresent(postIds));
+        List<Long> missing = postIds.stream().filter(postId -> !likers.containsKey(postId)).distinct().toList();
+        if (missing.isEmpty()) {
+            return likers;
+        }
+        long[] versionsBeforeLoad = missing.stream().mapToLong(postId -> versions.get(stripe(postId))).toArray();
+        // Loads must see every committed like, so they read the primary: in a transaction of their own when the
+        // current one already reads a (possibly lagging) replica
+        Map<Long, Likers> loaded = ReadReplicaDataSource.onPrimary(() -> ReadReplicaDataSource.isReadingReplica()
+                ? primaryTransaction.execute(status -> load(missing))
+                : load(missing));
+        likers.putAll(loaded);
+        for (int i = 0; i < missing.size(); i++) {
+            Long postId = missing.get(i);
+            if (!loaded.containsKey(postId)) {
+                continue;
+            }
+            if (versions.get(stripe(postId)) == versionsBeforeLoad[i]) {
+                cache.asMap().putIfAbsent(postId, loaded.get(postId));
+            } else {
+                log.debug("Likes of post {} changed while loading it, not indexing it", postId);
+            }
+        }
+        return likers;
+    }
+
+    private static int stripe(Long postId) {
+        return Math.floorMod(postId.hashCode(), VERSION_STRIPES);
+    }
+
+    private Map<Long, Likers> load(List<Long> postIds) {
+        log.debug("Loading likers of {} posts", postIds.size());
+        Map<Long, Likers> loaded = new HashMap<>();
+        for (int from = 0; from < postIds.size(); from += LOAD_BATCH_SIZE) {
+            List<Long> batch = postIds.subList(from, Math.min(from + LOAD_BATCH_SIZE, postIds.size()));
+            Set<Long> existingIds = new HashSet<>(postRepository.findIdsByIdIn(batch));
+            List<Long> existing = batch.stream().filter(existingIds::contains).toList();
+            if (existing.isEmpty()) {
+                continue;
+            }
+            Map<Long, int[]> userIds = likeRepository.findUserIdsByPostIdIn(existing);
+            for (Long postId : existing) {
+                Likers likers = Likers.of(userIds.getOrDefault(postId, new int[0]));
+                postBytes.record(likers.sizeInBytes());
+                loaded.put(postId, likers);
+            }
+        }
+        return loaded;
+    }
+
+    // A RoaringBitmap is not safe for concurrent use, so every access goes through the entry's monitor
+    private static final class Likers {
+        private final RoaringBitmap userIds;
+
+        private Likers(RoaringBitmap userIds) {
+            this.userIds = userIds;
+        }
+
+        static Likers of(int[] userIds) {
+            RoaringBitmap bitmap = RoaringBitmap.bitmapOf(userIds);
+            bitmap.runOptimize();
+            return new Likers(bitmap);
+        }
+
+        synchronized Likers add(int userId) {
+            userIds.add(userId);
+            return this;
+        }
+
+        synchronized Likers remove(int userId) {
+            userIds.remove(userId);
+            return this;
+        }
+
+        synchronized boolean contains(int userId) {
+            return userIds.contains(userId);
+        }
+
+        synchronized int cardinality() {
+            return userIds.getCardinality();
+        }
+
+        synchronized int sizeInBytes() {
+            return userIds.getSizeInBytes();
+        }
+
+        synchronized int[] toArray() {
+            return userIds.toArray();
+        }
+
+        synchronized List<Integer> page(Integer afterUserId, int limit) {
+            List<Integer> page = new ArrayList<>(Math.min(limit, userIds.getCardinality()));
+            PeekableIntIterator iterator = userIds.getIntIterator();
+            if (afterUserId != null) {
+                if (afterUserId == Integer.MAX_VALUE) {
+                    return page;
+                }
+                iterator.advanceIfNeeded(afterUserId + 1);
+            }
+            while (iterator.hasNext() && page.size() < limit) {
+                page.add(iterator.next());
+            }
+            return page;
+        }
+    }
+}
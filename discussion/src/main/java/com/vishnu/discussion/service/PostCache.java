@@ -0,0 +1,92 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.data.Comment;
+import com.vishnu.discussion.data.Post;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Targeted eviction from Hibernate's second-level cache of posts, comments and each post's comment list.
+ * <p>
+ * Hibernate keeps cached entities in step with changes made through it, but {@code posts.likes} is also written
+ * with plain SQL by {@link LikeCounter}, and a new or deleted comment does not touch the cached comment list of its
+ * post. Evictions take effect once the current transaction commits, so a concurrent reader cannot cache the old
+ * rows again in between.
+ */
+@Component
+public class PostCache {
+    public static final String POST_COMMENTS = Post.class.getName() + ".comments";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+
+    public PostCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    }
+
+    /**
+     * Keeps the rows written by the current transaction out of the cache, so a bulk import does not push out the
+     * entries readers are hitting. Must be called inside the transaction.
+     */
+    public void skipPutsInCurrentTransaction() {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+    }
+
+    /**
+     * Lets the current transaction read the cache but not fill it, for transactions reading from a replica whose
+     * rows may be older than the cached ones. Must be called inside the transaction.
+     */
+    public void skipPutsFromReplicaReads() {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+    }
+
+    /**
+     * Evicts a post together with its comment list.
+     */
+    public void evictPost(Long postId) {
+        AfterCommit.run(() -> {
+            cache().evictEntityData(Post.class, postId);
+            cache().evictCollectionData(POST_COMMENTS, postId);
+        });
+    }
+
+    /**
+     * Evicts posts whose rows were changed outside Hibernate; their comment lists stay cached.
+     */
+    public void evictPosts(Collection<Long> postIds) {
+        AfterCommit.run(() -> postIds.forEach(postId -> cache().evictEntityData(Post.class, postId)));
+    }
+
+    /**
+     * Evicts a comment and the comment list of its post, after the comment was added or deleted.
+     */
+    public void evictComment(Long commentId, Long postId) {
+        AfterCommit.run(() -> {
+            if (commentId != null) {
+                cache().evictEntityData(Comment.class, commentId);
+            }
+            if (postId != null) {
+                cache().evictCollectionData(POST_COMMENTS, postId);
+            }
+        });
+    }
+
+    /**
+     * Evicts comments deleted outside Hibernate, such as the comments of a purged post.
+     */
+    public void evictComments(Collection<Long> commentIds) {
+        AfterCommit.run(() -> commentIds.forEach(commentId -> cache().evictEntityData(Comment.class, commentId)));
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.vishnu.discussion.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes posts in two steps, so that deleting a post with a long thread neither holds locks on its comments nor
+ * keeps the request waiting.
+ * <p>
+ * {@link #tombstone} only stamps {@code posts.deleted_at}, which hides the post from every JPA query and load at once
+ * (see {@code Post}). Every {@code discussion.posts.purge-interval} ms the purger then deletes the comments and likes
+ * of tombstoned posts in chunks of {@code discussion.posts.purge-chunk-size} rows, each chunk committed on its own,
+ * and last the post row. A purge that is cut short continues from where it stopped on the next run. Progress shows
+ * in {@code discussion.posts.purge.rows{table=...}}, {@code discussion.posts.purged} and
+ * {@code discussion.posts.tombstones}.
+ */
+@Slf4j
+@Component
+public class PostPurger {
+    private static final String TOMBSTONE_SQL = "UPDATE posts SET deleted_at = ? WHERE id = ? AND deleted_at IS NULL";
+    private static final String TOMBSTONES_SQL =
+            "SELECT id FROM posts WHERE deleted_at IS NOT NULL ORDER BY deleted_at, id LIMIT ?";
+    private static final String COUNT_TOMBSTONES_SQL = "SELECT COUNT(*) FROM posts WHERE deleted_at IS NOT NULL";
+    private static final String COMMENT_IDS_SQL = "SELECT id FROM comments WHERE post_id = ? ORDER BY id LIMIT ?";
+    // Deletes exactly the chunk just read: the (post_id, id) range of the post_id index
+    private static final String DELETE_COMMENTS_SQL = "DELETE FROM comments WHERE post_id = ? AND id <= ?";
+    private static final String DELETE_LIKES_SQL = "DELETE FROM likes WHERE post_id = ? LIMIT ?";
+    private static final String DELETE_POST_SQL = "DELETE FROM posts WHERE id = ? AND deleted_at IS NOT NULL";
+    // Tombstones picked up per query; a run keeps going until none are left
+    private static final int POSTS_PER_RUN = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostCache postCache;
+    private final int chunkSize;
+    private final Clock clock;
+    private final Counter purgedPosts;
+    private final Counter purgedComments;
+    private final Counter purgedLikes;
+    private final AtomicLong tombstones = new AtomicLong();
+
+    @Autowired
+    public PostPurger(JdbcTemplate jdbcTemplate,
+                      PostCache postCache,
+                      @Value("${discussion.posts.purge-chunk-size:1000}") int chunkSize,
+                      MeterRegistry meterRegistry) {
+        this(jdbcTemplate, postCache, chunkSize, Clock.systemUTC(), meterRegistry);
+    }
+
+    PostPurger(JdbcTemplate jdbcTemplate, PostCache postCache, int chunkSize, Clock clock,
+               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postCache = postCache;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+        this.purgedPosts = Counter.builder("discussion.posts.purged")
+                .description("Deleted posts whose rows have been purged")
+                .register(meterRegistry);
+        this.purgedComments = Counter.builder("discussion.posts.purge.rows")
+                .description("Rows of deleted posts purged")
+                .tag("table", "comments")
+                .register(meterRegistry);
+        this.purgedLikes = Counter.builder("discussion.posts.purge.rows")
+                .description("Rows of deleted posts purged")
+                .tag("table", "likes")
+                .register(meterRegistry);
+        Gauge.builder("discussion.posts.tombstones", tombstones, AtomicLong::get)
+                .description("Deleted posts still waiting to be purged, as of the last purge")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marks the post deleted in the current transaction. Returns false when there is no such live post.
+     */
+    public boolean tombstone(Long postId) {
+        return jdbcTemplate.update(TOMBSTONE_SQL, Timestamp.from(clock.instant()), postId) == 1;
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.posts.purge-interval:10000}")
+    public void purge() {
+        List<Long> postIds;
+        do {
+            postIds = jdbcTemplate.queryForList(TOMBSTONES_SQL, Long.class, POSTS_PER_RUN);
+            for (Long postId : postIds) {
+                try {
+                    purgePost(postId);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to purge deleted post {}, retrying on the next run", postId, e);
+                    updateTombstones();
+                    return;
+                }
+            }
+        } while (postIds.size() == POSTS_PER_RUN);
+        updateTombstones();
+    }
+
+    // Runs without a transaction: every statement commits on its own and holds its locks only while it runs
+    private void purgePost(Long postId) {
+        long comments = 0;
+        List<Long> commentIds;
+        do {
+            commentIds = jdbcTemplate.queryForList(COMMENT_IDS_SQL, Long.class, postId, chunkSize);
+            if (!commentIds.isEmpty()) {
+                jdbcTemplate.update(DELETE_COMMENTS_SQL, postId, commentIds.get(commentIds.size() - 1));
+                postCache.evictComments(commentIds);
+                purgedComments.increment(commentIds.size());
+                comments += commentIds.size();
+            }
+        } while (commentIds.size() == chunkSize);
+
+        long likes = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_LIKES_SQL, postId, chunkSize);
+            purgedLikes.increment(deleted);
+            likes += deleted;
+        } while (deleted == chunkSize);
+
+        jdbcTemplate.update(DELETE_POST_SQL, postId);
+        purgedPosts.increment();
+        log.info("Purged deleted post {} with {} comments and {} likes", postId, comments, likes);
+    }
+
+    private void updateTombstones() {
+        Long count = jdbcTemplate.queryForObject(COUNT_TOMBSTONES_SQL, Long.class);
+        tombstones.set(count == null ? 0 : count);
+    }
+}
@@ -0,0 +1,308 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.data.CursorPage;
+import com.vishnu.discussion.data.PostSearchHit;
+import com.vishnu.discussion.data.PostSummary;
+import com.vishnu.discussion.event.PostEvent;
+import com.vishnu.discussion.repository.PostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Embedded full-text index of post content: a Lucene index on local disk ({@code discussion.search.path}), read
+ * through memory-mapped files.
+ * <p>
+ * The index follows {@link PostEvent}s once their transaction has committed. Changes become searchable at the next
+ * refresh ({@code discussion.search.refresh-interval}) and durable at the next Lucene commit
+ * ({@code discussion.search.commit-interval}). Every Lucene commit records the highest post id indexed and whether
+ * the index was closed cleanly. At startup the index is rebuilt from MySQL unless the last commit was a clean close
+ * that is level with the posts table, so changes lost in a crash or made by posts created elsewhere are repaired.
+ * <p>
+ * A rebuild replaces the documents in place, but searchers are not refreshed and nothing is committed until it is
+ * done, so searches keep answering from the old index and then switch over at once. Post events arriving meanwhile
+ * are held and applied after the rebuild, so they are not overwritten by the older rows it read. Searches only read
+ * the index; the number of indexed posts is the {@code discussion.search.index.docs} gauge.
+ */
+@Slf4j
+@Component
+public class PostSearchIndex {
+    static final String ID = "id";
+    static final String SORT_ID = "sort_id";
+    static final String CONTENT = "content";
+    static final String USER_ID = "userId";
+    // Lucene commit user data
+    static final String HIGHEST_POST_ID = "highestPostId";
+    static final String CLEAN = "clean";
+
+    // Most relevant first; equal scores newest first, so a cursor of (score, id) is a unique position
+    private static final Sort RELEVANCE = new Sort(SortField.FIELD_SCORE, new SortField(SORT_ID, SortField.Type.LONG, true));
+
+    private final PostRepository postRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Directory directory;
+    private final StandardAnalyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final AtomicBoolean uncommitted = new AtomicBoolean();
+    private final AtomicLong highestPostId = new AtomicLong();
+    // Post events received while a rebuild is running, applied once it is done; guarded by itself
+    private final List<PostEvent> heldEvents = new ArrayList<>();
+    private volatile boolean rebuilding;
+
+    @Autowired
+    public PostSearchIndex(@Value("${discussion.search.path:search-index}") Path path,
+                           PostRepository postRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) throws IOException {
+        this(new MMapDirectory(path), postRepository, transactionManager, meterRegistry);
+    }
+
+    PostSearchIndex(Directory directory,
+                    PostRepository postRepository,
+                    PlatformTransactionManager transactionManager,
+                    MeterRegistry meterRegistry) throws IOException {
+        this.postRepository = postRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.directory = directory;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        // Searchers opened from the writer see its changes on refresh, before they are committed
+        this.searcherManager = new SearcherManager(writer, null);
+        Gauge.builder("discussion.search.index.docs", writer, w -> w.getDocStats().numDocs)
+                .description("Posts in the full-text search index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Up to {@code limit} posts matching {@code text}, most relevant first, starting after {@code cursor}.
+     * All words must match; {@code "quoted phrases"}, {@code prefix*} and {@code -exclusions} are supported.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by this method
+     */
+    public CursorPage<PostSearchHit> search(String text, String cursor, int limit) throws IOException {
+        FieldDoc after = decodeCursor(cursor);
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(text);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            // Fetch one extra hit to know whether another page exists
+            TopFieldDocs top = searcher.searchAfter(after, query, limit + 1, RELEVANCE, true);
+            boolean hasMore = top.scoreDocs.length > limit;
+            StoredFields storedFields = searcher.storedFields();
+            List<PostSearchHit> hits = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, top.scoreDocs.length); i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                Document document = storedFields.document(hit.doc);
+                StoredField userId = (StoredField) document.getField(USER_ID);
+                hits.add(new PostSearchHit(Long.parseLong(document.get(ID)), document.get(CONTENT),
+                        userId == null ? null : userId.numericValue().intValue(), hit.score));
+            }
+            String nextCursor = hasMore ? encodeCursor((FieldDoc) top.scoreDocs[limit - 1]) : null;
+            return new CursorPage<>(hits, nextCursor);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        synchronized (heldEvents) {
+            if (rebuilding) {
+                heldEvents.add(event);
+            } else {
+                apply(event);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfStale() throws IOException {
+        Map<String, String> commitData = new HashMap<>();
+        writer.getLiveCommitData().forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+        long indexedHighestId = Long.parseLong(commitData.getOrDefault(HIGHEST_POST_ID, "0"));
+        highestPostId.set(indexedHighestId);
+        long highestId = Objects.requireNonNullElse(postRepository.findHighestId(), 0L);
+        long posts = postRepository.count();
+        int indexed = writer.getDocStats().numDocs;
+        if (!Boolean.parseBoolean(commitData.get(CLEAN))) {
+            log.info("Search index was not closed cleanly, rebuilding it");
+            rebuild();
+        } else if (indexedHighestId != highestId || indexed != posts) {
+            log.info("Search index holds {} posts up to id {}, the posts table {} up to id {}, rebuilding it",
+                    indexed, indexedHighestId, posts, highestId);
+            rebuild();
+        }
+        // From here on a crash may lose uncommitted changes, which the next start has to know about
+        commit(false);
+    }
+
+    /**
+     * Replaces the whole index with the posts currently in MySQL. Searches see the old index until it is done.
+     */
+    public synchronized void rebuild() throws IOException {
+        synchronized (heldEvents) {
+            rebuilding = true;
+        }
+        try {
+            long highestId = Objects.requireNonNullElse(postRepository.findHighestId(), 0L);
+            writer.deleteAll();
+            highestPostId.set(highestId);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<PostSummary> posts = postRepository.streamAllSummariesOrderByIdDesc()) {
+                    posts.forEach(post -> {
+                        try {
+                            index(post.id(), post.content(), post.userId());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            });
+        } finally {
+            synchronized (heldEvents) {
+                heldEvents.forEach(this::apply);
+                heldEvents.clear();
+                rebuilding = false;
+            }
+        }
+        commit();
+        searcherManager.maybeRefresh();
+    }
+
+    // Synchronized with rebuild, which holds the monitor throughout, so searches never open a half-built index
+    @Scheduled(fixedDelayString = "${discussion.search.refresh-interval:1000}")
+    public synchronized void refresh() {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Failed to refresh the search index", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${discussion.search.commit-interval:30000}")
+    public void commit() {
+        if (rebuilding || !uncommitted.getAndSet(false)) {
+            return;
+        }
+        try {
+            commit(false);
+        } catch (IOException e) {
+            uncommitted.set(true);
+            log.warn("Failed to commit the search index, retrying on the next commit", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        commit(true);
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private void commit(boolean clean) throws IOException {
+        writer.setLiveCommitData(Map.of(
+                HIGHEST_POST_ID, Long.toString(highestPostId.get()),
+                CLEAN, Boolean.toString(clean)).entrySet());
+        writer.commit();
+    }
+
+    private void apply(PostEvent event) {
+        try {
+            if (event.type() == PostEvent.Type.CREATED || event.type() == PostEvent.Type.UPDATED) {
+                index(event.postId(), event.post().getContent(), event.post().getUserId());
+            } else if (event.type() == PostEvent.Type.DELETED) {
+                writer.deleteDocuments(new Term(ID, event.postId().toString()));
+                uncommitted.set(true);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to apply {} of post {} to the search index: {}", event.type(), event.postId(), e.getMessage());
+        }
+    }
+
+    private void index(Long postId, String content, Integer userId) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(ID, postId.toString(), Field.Store.YES));
+        document.add(new NumericDocValuesField(SORT_ID, postId));
+        document.add(new TextField(CONTENT, content == null ? "" : content, Field.Store.YES));
+        if (userId != null) {
+            document.add(new StoredField(USER_ID, userId));
+        }
+        writer.updateDocument(new Term(ID, postId.toString()), document);
+        highestPostId.accumulateAndGet(postId, Math::max);
+        uncommitted.set(true);
+    }
+
+    private static String encodeCursor(FieldDoc last) {
+        return Cursors.encode(last.fields[0] + ":" + last.fields[1]);
+    }
+
+    private static FieldDoc decodeCursor(String cursor) {
+        String position = Cursors.decode(cursor);
+        if (position == null) {
+            return null;
+        }
+        String[] parts = position.split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            // Ids sort descending and are whole numbers, so (score, id - 1) lies just past the last hit; doc -1 keeps
+            // the hit with exactly that score and id, if any
+            return new FieldDoc(-1, Float.NaN,
+                    new Object[]{Float.parseFloat(parts[0]), Long.parseLong(parts[1]) - 1});
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -1,28 +1,52 @@
 package com.vishnu.discussion.service;
 
-import com.vishnu.discussion.data.Comment;
-import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CommentPreview;
+import com.vishnu.discussion.data.CursorPage;
 import com.vishnu.discussion.data.Post;
 import com.vishnu.discussion.data.PostDto;
+import com.vishnu.discussion.data.PostSearchHit;
+import com.vishnu.discussion.data.PostSummary;
+import com.vishnu.discussion.data.TrendingPost;
+import com.vishnu.discussion.event.PostEvent;
 import com.vishnu.discussion.exception.PostCreationException;
 import com.vishnu.discussion.exception.PostNotFoundException;
 import com.vishnu.discussion.repository.CommentRepository;
 import com.vishnu.discussion.repository.PostRepository;
-import com.vishnu.discussion.repository.LikeRepository;
-import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class PostService {
 
+    private static final int STREAM_CHUNK_SIZE = 100;
+    // Upper bound on post ids per comment preview query
+    private static final int PREVIEW_BATCH_SIZE = 1000;
+
+    @Value("${discussion.comments.preview-size:3}")
+    private int commentPreviewSize;
+
+    @Value("${discussion.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Autowired
     private PostRepository postRepository;
 
@@ -30,7 +54,28 @@ public class PostService {
     private CommentRepository commentRepository;
 
     @Autowired
-    private LikeRepository likeRepository;
+    private LikerIndex likerIndex;
+
+    @Autowired
+    private PostCache postCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LikeCounter likeCounter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PostSearchIndex postSearchIndex;
+
+    @Autowired
+    private TrendingPosts trendingPosts;
+
+    @Autowired
+    private PostPurger postPurger;
 
     @Transactional
     public PostDto createPost(PostDto postDto) {
@@ -43,13 +88,53 @@ public class PostService {
         if (postDto.getUserId() != null) {
             post.setUserId(postDto.getUserId());
         }
+        PostDto created;
         try {
             Post savedPost = postRepository.save(post);
             // add more mappings here if needed
-            return mapToDto(savedPost);
+            created = mapToDto(savedPost);
         } catch (Exception e) {
             throw new PostCreationException("Failed to create post Exception", e);
         }
+        eventPublisher.publishEvent(PostEvent.created(created));
+        return created;
+    }
+
+    /**
+     * Creates posts in chunks of {@code discussion.bulk.chunk-size}, each committed in its own transaction and
+     * inserted with JDBC batches. A failing chunk is rolled back on its own; the chunks before it stay committed.
+     */
+    public List<PostDto> createPosts(List<PostDto> postDtos) {
+        log.info("postService - createPosts");
+        List<PostDto> created = new ArrayList<>(postDtos.size());
+        for (int from = 0; from < postDtos.size(); from += bulkChunkSize) {
+            List<PostDto> chunk = postDtos.subList(from, Math.min(from + bulkChunkSize, postDtos.size()));
+            try {
+                created.addAll(transactionTemplate.execute(status -> createChunk(chunk)));
+            } catch (RuntimeException e) {
+                throw new PostCreationException("Failed to create posts after " + created.size() + " of "
+                        + postDtos.size() + " were created", e);
+            }
+        }
+        return created;
+    }
+
+    // New posts have no likes rows or comments yet, so the DTOs are built without the lookups mapToDtos does
+    private List<PostDto> createChunk(List<PostDto> chunk) {
+        postCache.skipPutsInCurrentTransaction();
+        List<Post> posts = chunk.stream()
+                .map(postDto -> Post.builder()
+                        .content(postDto.getContent())
+                        .likes(postDto.getLikes())
+                        .userId(postDto.getUserId())
+                        .build())
+                .toList();
+        List<PostDto> created = postRepository.saveAll(posts).stream()
+                .map(post -> new PostDto(post.getId(), post.getContent(), post.getLikes(), List.of(),
+                        post.getUserId(), List.of(), 0))
+                .toList();
+        created.forEach(post -> eventPublisher.publishEvent(PostEvent.created(post)));
+        return created;
     }
 
     @Transactional
@@ -64,110 +149,145 @@ public class PostService {
         if (postDto.getUserId() != null) {
             post.setUserId(postDto.getUserId());
         }
+        PostDto updated;
         try {
             Post savedPost = postRepository.save(post);
             // add more mappings here if needed
-            return mapToDto(savedPost);
+            updated = mapToDto(savedPost);
         } catch (Exception e) {
             throw new PostCreationException("Failed to update post", e);
         }
+        postCache.evictPost(postId);
+        eventPublisher.publishEvent(PostEvent.updated(updated));
+        return updated;
     }
 
-    @Transactional
+    // A single post is read through findById, which the second-level cache answers without a query
+    @Transactional(readOnly = true)
     public PostDto getPostById(Long postId) {
         log.info("postService - getPostById");
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found"));
         return mapToDto(post);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<PostDto> getPostsByUserId(Integer userId) {
         log.info("postService - getPostsByUserId");
-        List<Post> postsFromRepo = postRepository.findAllByUserId(userId).stream().toList();
-        List<PostDto> posts = postsFromRepo.stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
-        // TODO
-        posts.forEach(System.out::println);
-        return posts;
+        return mapToDtos(postRepository.findSummariesByUserId(userId));
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<PostDto> getAllPosts() {
         log.info("postService - getAllPosts");
-        return postRepository.findAll().stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return mapToDtos(postRepository.findAllSummaries());
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<PostDto> getAllPostsWithComments() {
         log.info("postService - getAllPostsWithComments");
-        System.out.println(
-                "findAllWithMoreLikes()" + postRepository.findAllWithMoreLikes().stream().map(this::mapToDto).toList());
-        System.out.println("findByContentStartingWith()"
-                + postRepository.findByContentStartingWith("po").stream().map(this::mapToDto).toList());
-        List<Post> posts = postRepository.findAllWithComments();
+        List<PostSummary> posts = postRepository.findAllSummaries();
         try {
-            return posts.stream()
-                    .map(this::mapToDto)
-                    .collect(Collectors.toList());
+            return mapToDtos(posts);
         } catch (PostNotFoundException e) {
             throw new PostNotFoundException("Posts and comments not found");
         }
     }
 
-    @Transactional
-    public void deletePostById(Long postId) throws PostNotFoundException {
-        log.info("postService - deletePostById");
-        if (postRepository.findById(postId).isPresent()) {
-            postRepository.deleteById(postId);
-        } else {
-            throw new PostNotFoundException("Post not found to Delete");
+    /**
+     * Streams every post, newest first, to {@code sink} while holding at most one chunk of posts in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllPosts(Consumer<PostDto> sink) {
+        log.info("postService - streamAllPosts");
+        try (Stream<PostSummary> posts = postRepository.streamAllSummariesOrderByIdDesc()) {
+            List<PostSummary> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            Iterator<PostSummary> iterator = posts.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    emitChunk(chunk, sink);
+                }
+            }
+            emitChunk(chunk, sink);
         }
     }
 
+    // Likers and comment previews of a chunk are loaded together
+    private void emitChunk(List<PostSummary> chunk, Consumer<PostDto> sink) {
+        mapToDtos(chunk).forEach(sink);
+        chunk.clear();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostDto> getPostsPage(String cursor, int limit) {
+        log.info("postService - getPostsPage");
+        Long beforeId = Cursors.decodeId(cursor);
+        // Fetch one extra row to know whether another page exists without a COUNT query
+        List<PostSummary> rows = beforeId == null
+                ? postRepository.findSummariesOrderByIdDesc(Limit.of(limit + 1))
+                : postRepository.findSummariesByIdLessThanOrderByIdDesc(beforeId, Limit.of(limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<PostSummary> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? Cursors.encodeId(page.get(page.size() - 1).id()) : null;
+        return new CursorPage<>(mapToDtos(page), nextCursor);
+    }
+
+    // Answered from the search index alone, so there is deliberately no transaction or connection here
+    public CursorPage<PostSearchHit> searchPosts(String text, String cursor, int limit) throws IOException {
+        log.info("postService - searchPosts");
+        return postSearchIndex.search(text, cursor, limit);
+    }
+
+    // Served from the in-memory trending snapshot; no transaction or connection either
+    public List<TrendingPost> getTrendingPosts(int limit) {
+        return trendingPosts.top(limit);
+    }
+
+    // A single UPDATE hides the post; its comments, likes and row are deleted later by the purger
     @Transactional
-    public PostDto likePost(Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new PostNotFoundException("Post not found"));
-        if (post.getLikes() == null) {
-            post.setLikes(1);
+    public void deletePostById(Long postId) throws PostNotFoundException {
+        log.info("postService - deletePostById");
+        if (postPurger.tombstone(postId)) {
+            likerIndex.invalidate(postId);
+            postCache.evictPost(postId);
+            eventPublisher.publishEvent(PostEvent.deleted(postId));
         } else {
-            post.setLikes(post.getLikes() + 1);
+            throw new PostNotFoundException("Post not found to Delete");
         }
-        Post savedPost = postRepository.save(post);
-        return mapToDto(savedPost);
     }
 
     // Utility method to map Post entity to PostDto
     private PostDto mapToDto(Post post) {
-        PostDto postDto = new PostDto();
-        postDto.setId(post.getId());
-        postDto.setContent(post.getContent());
-        postDto.setLikes(post.getLikes());
-        postDto.setComments(mapCommentsToDto(post.getComments()));
-        postDto.setUserId(post.getUserId());
-
-        // Add likedBy information
-        if (post.getId() != null) {
-            List<Integer> likedByUsers = likeRepository.findUserIdsByPostId(post.getId());
-            postDto.setLikedBy(likedByUsers);
-        }
+        return mapToDtos(List.of(PostSummary.of(post))).get(0);
+    }
 
-        return postDto;
+    // Likers come from the index, which loads the posts it misses together, and comment previews are read with one
+    // query per PREVIEW_BATCH_SIZE posts; the posts' comment collections are never loaded
+    private List<PostDto> mapToDtos(List<PostSummary> posts) {
+        List<Long> postIds = posts.stream().map(PostSummary::id).filter(Objects::nonNull).toList();
+        Map<Long, int[]> likers = likerIndex.userIds(postIds);
+        Map<Long, CommentPreview> previews = new HashMap<>();
+        for (int from = 0; from < postIds.size(); from += PREVIEW_BATCH_SIZE) {
+            previews.putAll(commentRepository.findPreviewsByPostIdIn(
+                    postIds.subList(from, Math.min(from + PREVIEW_BATCH_SIZE, postIds.size())), commentPreviewSize));
+        }
+        return posts.stream()
+                .map(post -> mapToDto(post,
+                        post.id() == null ? null : IntStream.of(likers.get(post.id())).boxed().toList(),
+                        post.id() == null ? CommentPreview.NONE : previews.getOrDefault(post.id(), CommentPreview.NONE)))
+                .collect(Collectors.toList());
     }
 
-    private List<CommentDto> mapCommentsToDto(List<Comment> comments) {
-        return Optional.ofNullable(comments)
-                .map(list -> list.stream()
-                        .map(comment -> {
-                            CommentDto commentDto = new CommentDto();
-                            commentDto.setId(comment.getId());
-                            commentDto.setContent(comment.getContent());
-                            commentDto.setAuthorName(comment.getAuthorName());
-                            return commentDto;
-                        }).collect(Collectors.toList()))
-                .orElse(Collections.emptyList());
+    private PostDto mapToDto(PostSummary post, List<Integer> likedBy, CommentPreview comments) {
+        PostDto postDto = new PostDto();
+        postDto.setId(post.id());
+        postDto.setContent(post.content());
+        // Includes likes that the write-behind counter has not flushed to the row yet
+        postDto.setLikes(post.id() == null ? post.likes() : likeCounter.current(post.id(), post.likes()));
+        postDto.setComments(comments.comments());
+        postDto.setCommentCount(comments.count());
+        postDto.setUserId(post.userId());
+        postDto.setLikedBy(likedBy);
+        return postDto;
     }
 }
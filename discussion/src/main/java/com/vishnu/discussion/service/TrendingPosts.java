@@ -0,0 +1,213 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.data.TrendingPost;
+import com.vishnu.discussion.event.PostActivityEvent;
+import com.vishnu.discussion.event.PostEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What is hot right now, kept in memory from committed likes and comments ({@link PostActivityEvent}s).
+ * <p>
+ * Each active post has a score that decays exponentially with a half-life of {@code discussion.trending.half-life}.
+ * A like adds 1 and a comment adds {@code discussion.trending.comment-weight}. Each post also keeps a ring of
+ * {@code discussion.trending.bucket} sized buckets covering the last {@code discussion.trending.window}, so its recent
+ * like and comment counts are known.
+ * <p>
+ * Every {@code discussion.trending.refresh-interval} ms a min-heap picks the top
+ * {@code discussion.trending.top-k} posts into a snapshot. {@link #top} serves that snapshot without locking or SQL.
+ * At most {@code discussion.trending.max-tracked-posts} posts are tracked (about 1 KB each with the default
+ * window). When that many are tracked, activity on further posts is dropped until the next refresh frees room by
+ * forgetting the lowest scores. Drops are counted in {@code discussion.trending.dropped}.
+ */
+@Slf4j
+@Component
+public class TrendingPosts {
+    // Decayed scores below this are forgotten; a single like gets there after about seven half-lives
+    private static final double MIN_SCORE = 0.01;
+    // Refreshes trim the tracked posts to this share of the maximum, leaving room for newly active posts
+    private static final double TRIM_TO = 0.9;
+
+    private final Clock clock;
+    private final long bucketMs;
+    private final int buckets;
+    private final double decayPerMs;
+    private final double commentWeight;
+    private final int topK;
+    private final int maxTrackedPosts;
+    private final Map<Long, Activity> activities = new ConcurrentHashMap<>();
+    private final Counter dropped;
+    private volatile List<TrendingPost> snapshot = List.of();
+
+    @Autowired
+    public TrendingPosts(@Value("${discussion.trending.window:1h}") Duration window,
+                         @Value("${discussion.trending.bucket:1m}") Duration bucket,
+                         @Value("${discussion.trending.half-life:30m}") Duration halfLife,
+                         @Value("${discussion.trending.comment-weight:3}") double commentWeight,
+                         @Value("${discussion.trending.top-k:100}") int topK,
+                         @Value("${discussion.trending.max-tracked-posts:10000}") int maxTrackedPosts,
+                         MeterRegistry meterRegistry) {
+        this(Clock.systemUTC(), window, bucket, halfLife, commentWeight, topK, maxTrackedPosts, meterRegistry);
+    }
+
+    TrendingPosts(Clock clock, Duration window, Duration bucket, Duration halfLife, double commentWeight, int topK,
+                  int maxTrackedPosts, MeterRegistry meterRegistry) {
+        this.clock = clock;
+        this.bucketMs = bucket.toMillis();
+        this.buckets = (int) Math.max(1, window.toMillis() / bucketMs);
+        this.decayPerMs = Math.log(2) / halfLife.toMillis();
+        this.commentWeight = commentWeight;
+        this.topK = topK;
+        this.maxTrackedPosts = maxTrackedPosts;
+        this.dropped = Counter.builder("discussion.trending.dropped")
+                .description("Likes and comments not tracked because the trending posts were at their maximum")
+                .register(meterRegistry);
+        Gauge.builder("discussion.trending.posts", activities, Map::size)
+                .description("Posts with recent activity tracked for trending")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The {@code limit} hottest posts as of the last refresh, hottest first.
+     */
+    public List<TrendingPost> top(int limit) {
+        List<TrendingPost> top = snapshot;
+        return top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostActivity(PostActivityEvent event) {
+        boolean like = event.type() == PostActivityEvent.Type.LIKED;
+        // Unlikes, deleted comments and imported comments are not fresh activity and must not take a tracked slot
+        if (!like && event.type() != PostActivityEvent.Type.COMMENTED) {
+            return;
+        }
+        Activity activity = activities.get(event.postId());
+        if (activity == null) {
+            if (activities.size() >= maxTrackedPosts) {
+                dropped.increment();
+                return;
+            }
+            activity = activities.computeIfAbsent(event.postId(), postId -> new Activity(buckets));
+        }
+        long now = clock.millis();
+        if (like) {
+            activity.record(now, bucketMs, decayPerMs, 1, 0, 1);
+        } else {
+            activity.record(now, bucketMs, decayPerMs, 0, 1, commentWeight);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        if (event.type() == PostEvent.Type.DELETED) {
+            activities.remove(event.postId());
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot of the top posts and forgets posts whose activity has died down.
+     */
+    @Scheduled(fixedDelayString = "${discussion.trending.refresh-interval:1000}")
+    public void refresh() {
+        long now = clock.millis();
+        List<Map.Entry<Long, Double>> scores = new ArrayList<>();
+        // Min-heap of the best topK so far: the root is the weakest and is pushed out by anything hotter
+        PriorityQueue<TrendingPost> heap = new PriorityQueue<>(Comparator.comparingDouble(TrendingPost::score));
+        activities.forEach((postId, activity) -> {
+            double score = activity.scoreAt(now, decayPerMs);
+            if (score < MIN_SCORE) {
+                activities.remove(postId, activity);
+                return;
+            }
+            scores.add(Map.entry(postId, score));
+            if (heap.size() < topK || score > heap.peek().score()) {
+                int[] counts = activity.windowCounts(now, bucketMs);
+                heap.add(new TrendingPost(postId, score, counts[0], counts[1]));
+                if (heap.size() > topK) {
+                    heap.poll();
+                }
+            }
+        });
+        trim(scores);
+        List<TrendingPost> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingDouble(TrendingPost::score).reversed());
+        snapshot = List.copyOf(top);
+    }
+
+    private void trim(List<Map.Entry<Long, Double>> scores) {
+        int keep = (int) (maxTrackedPosts * TRIM_TO);
+        if (scores.size() <= keep) {
+            return;
+        }
+        scores.sort(Map.Entry.comparingByValue());
+        scores.subList(0, scores.size() - keep).forEach(entry -> activities.remove(entry.getKey()));
+        log.debug("Forgot {} posts with the least trending activity", scores.size() - keep);
+    }
+
+    // One post's decayed score and its recent activity in a ring of time buckets
+    private static final class Activity {
+        private final long[] bucketIds;
+        private final int[] likes;
+        private final int[] comments;
+        private double score;
+        private long scoredAt;
+
+        private Activity(int buckets) {
+            this.bucketIds = new long[buckets];
+            this.likes = new int[buckets];
+            this.comments = new int[buckets];
+        }
+
+        synchronized void record(long now, long bucketMs, double decayPerMs, int like, int comment, double weight) {
+            score = decayed(now, decayPerMs) + weight;
+            scoredAt = now;
+            long bucketId = now / bucketMs;
+            int slot = (int) (bucketId % bucketIds.length);
+            // A slot still holding an older bucket has fallen out of the window
+            if (bucketIds[slot] != bucketId) {
+                bucketIds[slot] = bucketId;
+                likes[slot] = 0;
+                comments[slot] = 0;
+            }
+            likes[slot] += like;
+            comments[slot] += comment;
+        }
+
+        synchronized double scoreAt(long now, double decayPerMs) {
+            return decayed(now, decayPerMs);
+        }
+
+        synchronized int[] windowCounts(long now, long bucketMs) {
+            long oldest = now / bucketMs - bucketIds.length;
+            int[] counts = new int[2];
+            for (int slot = 0; slot < bucketIds.length; slot++) {
+                if (bucketIds[slot] > oldest) {
+                    counts[0] += likes[slot];
+                    counts[1] += comments[slot];
+                }
+            }
+            return counts;
+        }
+
+        private double decayed(long now, double decayPerMs) {
+            return score * Math.exp(-decayPerMs * Math.max(0, now - scoredAt));
+        }
+    }
+}
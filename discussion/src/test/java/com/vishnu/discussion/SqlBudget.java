@@ -0,0 +1,52 @@
+package com.vishnu.discussion;
+
+import com.vishnu.discussion.config.SqlStatsFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc expectations on the SQL a request ran, read from the headers written by {@link SqlStatsFilter}, so tests
+ * fail when an endpoint goes over its statement budget or starts repeating a statement per row.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static ResultMatcher statementsAtMost(long budget) {
+        return headerAtMost(SqlStatsFilter.STATEMENTS_HEADER, budget, "SQL statements");
+    }
+
+    public static ResultMatcher repeatsAtMost(long budget) {
+        return headerAtMost(SqlStatsFilter.MAX_REPEATS_HEADER, budget, "runs of a single SQL statement");
+    }
+
+    /**
+     * Runs {@code work} the way {@link SqlStatsFilter} runs a request and fails if it made more than {@code budget}
+     * statements, for repository and service code tested without MockMvc. The data source must be wrapped by
+     * {@code SqlStatsConfig}.
+     */
+    public static void statementsAtMost(long budget, Runnable work) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new SqlStatsFilter(new SimpleMeterRegistry(), Integer.MAX_VALUE)
+                .doFilter(new MockHttpServletRequest(), response, (request, ignored) -> work.run());
+        assertAtMost(response.getHeader(SqlStatsFilter.STATEMENTS_HEADER), SqlStatsFilter.STATEMENTS_HEADER, budget,
+                "SQL statements", "The work");
+    }
+
+    private static ResultMatcher headerAtMost(String header, long budget, String what) {
+        return result -> assertAtMost(result.getResponse().getHeader(header), header, budget, what,
+                result.getRequest().getMethod() + " " + result.getRequest().getRequestURI());
+    }
+
+    private static void assertAtMost(String value, String header, long budget, String what, String source) {
+        assertNotNull(value, header + " is missing; is SqlStatsFilter installed?");
+        long actual = Long.parseLong(value);
+        assertTrue(actual <= budget, () -> source + " made " + actual + " " + what + ", over its budget of " + budget);
+    }
+}
@@ -0,0 +1,188 @@
+package com.vishnu.discussion.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica0;
+    private HikariDataSource replica1;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadReplicaDataSource dataSource;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = pool();
+        replica0 = pool();
+        replica1 = pool();
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new ReadReplicaDataSource(primary, List.of(replica0, replica1), Duration.ofHours(1), meterRegistry);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void sendsReadOnlyTransactionsToTheReplicasInTurnAndTheRestToThePrimary() throws SQLException {
+        readOnly.executeWithoutResult(status -> runStatement());
+        readOnly.executeWithoutResult(status -> runStatement());
+        readWrite.executeWithoutResult(status -> runStatement());
+        runStatement();
+
+        verify(replica0).getConnection();
+        verify(replica1).getConnection();
+        verify(primary, times(2)).getConnection();
+        assertEquals(2.0, meterRegistry.get("discussion.datasource.reads").tag("target", "replica").counter().count());
+    }
+
+    @Test
+    void transactionsWithoutStatementsTakeNoConnection() throws SQLException {
+        readOnly.executeWithoutResult(status -> {
+        });
+
+        verify(primary, never()).getConnection();
+        verify(replica0, never()).getConnection();
+        verify(replica1, never()).getConnection();
+    }
+
+    @Test
+    void readsThePrimaryWhileNoReplicaIsUsableAndReturnsToReplicasOnceTheyRecover() throws SQLException {
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+
+        readOnly.executeWithoutResult(status -> runStatement());
+        readOnly.executeWithoutResult(status -> runStatement());
+        dataSource.checkReplicas();
+        readOnly.executeWithoutResult(status -> runStatement());
+
+        verify(primary, times(3)).getConnection();
+        assertEquals(0.0, meterRegistry.get("discussion.datasource.replicas.healthy").gauge().value());
+
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(1)).thenReturn(true);
+        doReturn(connection).when(replica1).getConnection();
+        dataSource.checkReplicas();
+        readOnly.executeWithoutResult(status -> runStatement());
+
+        assertEquals(1.0, meterRegistry.get("discussion.datasource.replicas.healthy").gauge().value());
+        verify(primary, times(3)).getConnection();
+    }
+
+    @Test
+    void onPrimaryKeepsAReadOnlyTransactionOffTheReplicas() throws SQLException {
+        readOnly.executeWithoutResult(status -> {
+            ReadReplicaDataSource.onPrimary(() -> {
+                runStatement();
+                return null;
+            });
+            runStatement();
+            assertFalse(ReadReplicaDataSource.isReadingReplica());
+        });
+        readOnly.executeWithoutResult(status -> {
+            runStatement();
+            assertTrue(ReadReplicaDataSource.isReadingReplica());
+        });
+
+        assertFalse(ReadReplicaDataSource.isReadingReplica());
+        verify(primary).getConnection();
+        verify(replica0).getConnection();
+    }
+
+    @Test
+    void nestedOnPrimaryLeavesTheOuterCallOnThePrimary() throws SQLException {
+        readOnly.executeWithoutResult(status -> ReadReplicaDataSource.onPrimary(() -> {
+            ReadReplicaDataSource.onPrimary(() -> null);
+            runStatement();
+            return null;
+        }));
+
+        verify(primary).getConnection();
+        verify(replica0, never()).getConnection();
+        verify(replica1, never()).getConnection();
+    }
+
+    @Test
+    void callerThatJustWroteReadsFromThePrimary() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1));
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/posts/create");
+        write.addHeader("Authorization", "Bearer alice");
+        filter.doFilter(write, new MockHttpServletResponse(), new MockFilterChain());
+
+        filter.doFilter(readRequest("Bearer alice"), new MockHttpServletResponse(), new MockFilterChain(readingServlet()));
+        filter.doFilter(readRequest("Bearer bob"), new MockHttpServletResponse(), new MockFilterChain(readingServlet()));
+
+        verify(primary).getConnection();
+        verify(replica0).getConnection();
+    }
+
+    private static HikariDataSource pool() throws SQLException {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return pool;
+    }
+
+    private static MockHttpServletRequest readRequest(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/all");
+        request.addHeader("Authorization", authorization);
+        return request;
+    }
+
+    private HttpServlet readingServlet() {
+        return new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                readOnly.executeWithoutResult(status -> runStatement());
+            }
+        };
+    }
+
+    // The data source only takes a connection from a pool once a statement needs one
+    private void runStatement() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.createStatement();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.vishnu.discussion.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SqlStatsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SqlStatsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new SqlStatsFilter(meterRegistry, 3);
+    }
+
+    @Test
+    void reportsStatementsRowsAndRepeatsOfTheRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/all");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/posts/all");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                SqlStats stats = SqlStats.current();
+                stats.recordStatement("select * from posts", 1_000_000);
+                for (int i = 0; i < 3; i++) {
+                    stats.recordStatement("select * from likes where post_id=?", 1_000_000);
+                    stats.recordRow();
+                }
+                resp.getWriter().write("[]");
+            }
+        }));
+
+        assertEquals("4", response.getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertEquals("3", response.getHeader(SqlStatsFilter.ROWS_HEADER));
+        assertEquals("4", response.getHeader(SqlStatsFilter.TIME_HEADER));
+        assertEquals("3", response.getHeader(SqlStatsFilter.MAX_REPEATS_HEADER));
+        assertEquals(4.0, meterRegistry.get("sql.request.statements").tag("uri", "/api/posts/all").summary().totalAmount());
+        assertEquals(1.0, meterRegistry.get("sql.request.repeated").tag("method", "GET").counter().count());
+        assertNull(SqlStats.current());
+    }
+
+    @Test
+    void writesHeadersForResponsesWithoutBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/api/posts/1"), response, new MockFilterChain());
+
+        assertEquals("0", response.getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertEquals(0, meterRegistry.find("sql.request.repeated").counters().size());
+    }
+}
@@ -1,7 +1,11 @@
 package com.vishnu.discussion.controllers;
 
 import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CursorPage;
 import com.vishnu.discussion.data.PostDto;
+import com.vishnu.discussion.data.PostSearchHit;
+import com.vishnu.discussion.data.TrendingPost;
+import com.vishnu.discussion.event.ChangeStream;
 import com.vishnu.discussion.service.CommentService;
 import com.vishnu.discussion.service.LikeService;
 import com.vishnu.discussion.service.PostService;
@@ -13,14 +17,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(PostController.class)
@@ -31,6 +42,8 @@ class PostControllerTest {
     private CommentService commentService;
     @MockBean
     private LikeService likeService;
+    @MockBean
+    private ChangeStream changeStream;
 
     @InjectMocks
     private PostController postController;
@@ -82,6 +95,28 @@ class PostControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNoContent());
     }
 
+    @Test
+    void createPostsInBulk() throws Exception {
+        when(postService.createPosts(any())).thenReturn(List.of(
+                new PostDto(1L, "first", 0, List.of(), 1, List.of(), 0),
+                new PostDto(2L, "second", 0, List.of(), 2, List.of(), 0)));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/posts/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"content\":\"first\",\"userId\":1},{\"content\":\"second\",\"userId\":2}]"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void createPostsInBulkRejectsPostsWithoutUser() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/posts/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"content\":\"first\",\"userId\":1},{\"content\":\"second\"}]"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     void updatePost() throws Exception {
         // Mocking the service method
@@ -134,6 +169,159 @@ class PostControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].likes").value(20));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAllPostsAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<PostDto> sink = invocation.getArgument(0);
+            sink.accept(new PostDto(2L, "Test Post 2", 20, null, 1, null));
+            sink.accept(new PostDto(1L, "Test Post 1", 10, null, 1, null));
+            return null;
+        }).when(postService).streamAllPosts(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/all")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(dispatched -> {
+                    String[] lines = dispatched.getResponse().getContentAsString().split("\n");
+                    assertEquals(2, lines.length);
+                    assertTrue(lines[0].contains("\"content\":\"Test Post 2\""));
+                });
+    }
+
+    @Test
+    void getPostsPage() throws Exception {
+        List<PostDto> postDtoList = List.of(
+                new PostDto(3L, "Test Post 3", 1, null, 1, null),
+                new PostDto(2L, "Test Post 2", 2, null, 2, null));
+        when(postService.getPostsPage(null, 2)).thenReturn(new CursorPage<>(postDtoList, "Mg"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/page")
+                .param("limit", "2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].id").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("Mg"));
+    }
+
+    @Test
+    void getPostsPageRejectsOversizedLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/page")
+                .param("limit", "1000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void searchPosts() throws Exception {
+        when(postService.searchPosts("hiking", null, 20)).thenReturn(new CursorPage<>(
+                List.of(new PostSearchHit(2L, "Hiking again", 1, 1.5f), new PostSearchHit(1L, "Went hiking", 2, 0.9f)),
+                null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/search")
+                .param("q", "hiking")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].content").value("Went hiking"));
+    }
+
+    @Test
+    void searchPostsRejectsBlankQuery() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/search")
+                .param("q", " ")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void getTrendingPosts() throws Exception {
+        when(postService.getTrendingPosts(2)).thenReturn(
+                List.of(new TrendingPost(3L, 6.5, 2, 1), new TrendingPost(1L, 2.0, 2, 0)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/trending")
+                .param("limit", "2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].postId").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].comments").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].likes").value(2));
+    }
+
+    @Test
+    void getTrendingPostsRejectsOversizedLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/trending")
+                .param("limit", "1000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void streamEventsResumesAfterLastEventId() throws Exception {
+        when(changeStream.subscribe(42L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/events")
+                .header("Last-Event-ID", "42")
+                .param("after", "7")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted());
+        verify(changeStream).subscribe(42L);
+    }
+
+    @Test
+    void streamEventsRejectsSubscribersWhenFull() throws Exception {
+        when(changeStream.isFull()).thenReturn(true);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/events")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+    }
+
+    @Test
+    void getComments() throws Exception {
+        List<CommentDto> comments = List.of(new CommentDto(4L, "first", "a"), new CommentDto(5L, "second", "b"));
+        when(commentService.getComments(1L, null, 2)).thenReturn(new CursorPage<>(comments, "NQ"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/{postId}/comments", 1L)
+                .param("limit", "2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].content").value("second"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("NQ"));
+    }
+
+    @Test
+    void addCommentsInBulk() throws Exception {
+        when(commentService.addCommentsToPost(any(), any())).thenReturn(
+                List.of(new CommentDto(4L, "first", "a"), new CommentDto(5L, "second", "b")));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/posts/{postId}/comments/bulk", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"content\":\"first\",\"authorName\":\"a\"},{\"content\":\"second\",\"authorName\":\"b\"}]"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(5));
+    }
+
+    @Test
+    void getLikers() throws Exception {
+        when(likeService.getLikers(1L, null, 2)).thenReturn(new CursorPage<>(List.of(3, 7), "Nw"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/posts/{postId}/likes", 1L)
+                .param("limit", "2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0]").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1]").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("Nw"));
+    }
+
     @Test
     void deletePostById() throws Exception {
         // Mocking the service method
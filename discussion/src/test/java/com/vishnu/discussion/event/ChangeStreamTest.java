@@ -0,0 +1,99 @@
+package com.vishnu.discussion.event;
+
+import com.vishnu.discussion.data.OutboxCursor;
+import com.vishnu.discussion.data.OutboxEvent;
+import com.vishnu.discussion.repository.OutboxCursorRepository;
+import com.vishnu.discussion.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeStreamTest {
+
+    private OutboxRepository outboxRepository;
+    private OutboxCursorRepository cursorRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ChangeStream changeStream;
+    private final List<Runnable> senders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(OutboxRepository.class);
+        cursorRepository = mock(OutboxCursorRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        changeStream = new ChangeStream(outboxRepository, cursorRepository, 500, Duration.ofMinutes(1), 2, 1,
+                senders::add, meterRegistry);
+        when(cursorRepository.findById(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 20)));
+        when(outboxRepository.findMinSequence()).thenReturn(11L);
+    }
+
+    @Test
+    void subscribersAtTheSamePositionShareOneQuery() throws Exception {
+        OutboxEvent event = new OutboxEvent("LIKED", 1L, "{\"userId\":7}", Instant.now());
+        event.setSequence(21L);
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(20L), any(Limit.class)))
+                .thenReturn(List.of(event));
+
+        changeStream.subscribe(null);
+        changeStream.subscribe(null);
+        changeStream.poll();
+        changeStream.poll();
+
+        verify(outboxRepository).findBySequenceGreaterThanOrderBySequenceAsc(eq(20L), any(Limit.class));
+        verify(outboxRepository, times(1)).findBySequenceGreaterThanOrderBySequenceAsc(eq(21L), any(Limit.class));
+        assertEquals(2.0, meterRegistry.get("discussion.outbox.subscribers").gauge().value());
+        assertTrue(changeStream.isFull());
+    }
+
+    @Test
+    void resumesFromTheOldestRetainedEventWhenTheRequestedOnesWerePurged() throws Exception {
+        changeStream.subscribe(3L);
+        changeStream.poll();
+
+        // Events up to 10 are gone, so the subscriber continues after 10 once told to reset
+        verify(outboxRepository).findBySequenceGreaterThanOrderBySequenceAsc(eq(10L), any(Limit.class));
+        assertFalse(changeStream.isFull());
+    }
+
+    @Test
+    void queuesEventsForTheSendersAndDropsASubscriberThatFallsTooFarBehind() throws Exception {
+        OutboxEvent liked = new OutboxEvent("LIKED", 1L, "{\"userId\":7}", Instant.now());
+        liked.setSequence(21L);
+        OutboxEvent unliked = new OutboxEvent("UNLIKED", 1L, "{\"userId\":7}", Instant.now());
+        unliked.setSequence(22L);
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(20L), any(Limit.class)))
+                .thenReturn(List.of(liked));
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(21L), any(Limit.class)))
+                .thenReturn(List.of(unliked));
+
+        changeStream.subscribe(null);
+        changeStream.poll();
+
+        // Nothing was sent on the relay's thread, the event waits for a sender
+        assertEquals(1, senders.size());
+        assertEquals(1.0, meterRegistry.get("discussion.outbox.subscribers").gauge().value());
+
+        // The sender never ran, so a second event does not fit in the queue
+        changeStream.poll();
+
+        assertEquals(0.0, meterRegistry.get("discussion.outbox.subscribers").gauge().value());
+    }
+}
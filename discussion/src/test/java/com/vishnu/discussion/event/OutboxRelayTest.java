@@ -0,0 +1,251 @@
+package com.vishnu.discussion.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vishnu.discussion.data.OutboxCursor;
+import com.vishnu.discussion.data.OutboxEvent;
+import com.vishnu.discussion.repository.OutboxCursorRepository;
+import com.vishnu.discussion.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-08T00:00:00Z");
+
+    private OutboxRepository outboxRepository;
+    private OutboxCursorRepository cursorRepository;
+    private ChangeStream changeStream;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<String> webhookBodies = new ArrayList<>();
+    private final List<String> calls = new ArrayList<>();
+    private HttpStatus webhookStatus = HttpStatus.OK;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(OutboxRepository.class);
+        cursorRepository = mock(OutboxCursorRepository.class);
+        changeStream = mock(ChangeStream.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void sequencesNewEventsAndDeliversThemToTheWebhook() {
+        OutboxCursor sequencer = new OutboxCursor(OutboxRelay.SEQUENCER, 10);
+        OutboxCursor webhook = new OutboxCursor(OutboxRelay.WEBHOOK, 10);
+        when(cursorRepository.findForUpdate(OutboxRelay.SEQUENCER)).thenReturn(Optional.of(sequencer));
+        when(cursorRepository.findForUpdate(OutboxRelay.WEBHOOK)).thenReturn(Optional.of(webhook));
+        when(cursorRepository.findById(OutboxRelay.WEBHOOK)).thenReturn(Optional.of(webhook));
+        List<OutboxEvent> events = List.of(
+                new OutboxEvent("LIKED", 1L, "{\"userId\":7}", NOW),
+                new OutboxEvent("DELETED", 2L, null, NOW));
+        when(outboxRepository.findBySequenceIsNullOrderByIdAsc(any(Limit.class))).thenReturn(events);
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(10L), any(Limit.class)))
+                .thenReturn(events);
+
+        relay("http://consumer/events").relay();
+
+        assertEquals(List.of(11L, 12L), events.stream().map(OutboxEvent::getSequence).toList());
+        assertEquals(12, sequencer.getPosition());
+        assertEquals(12, webhook.getPosition());
+        assertEquals(1, webhookBodies.size());
+        assertTrue(webhookBodies.get(0).contains("\"sequence\":11,\"type\":\"LIKED\",\"postId\":1"));
+        assertTrue(webhookBodies.get(0).contains("\"data\":{\"userId\":7}"));
+        assertTrue(webhookBodies.get(0).contains("\"after\":10"));
+        assertTrue(webhookBodies.get(0).contains("\"upTo\":12"));
+        assertEquals(2.0, meterRegistry.get("discussion.outbox.delivered").tag("target", "webhook").counter().count());
+        verify(changeStream).poll();
+    }
+
+    @Test
+    void keepsTheWebhookCursorWhenDeliveryFails() {
+        webhookStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        OutboxCursor webhook = new OutboxCursor(OutboxRelay.WEBHOOK, 10);
+        when(cursorRepository.findForUpdate(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 11)));
+        when(cursorRepository.findForUpdate(OutboxRelay.WEBHOOK)).thenReturn(Optional.of(webhook));
+        when(cursorRepository.findById(OutboxRelay.WEBHOOK)).thenReturn(Optional.of(webhook));
+        OutboxEvent event = new OutboxEvent("LIKED", 1L, "{\"userId\":7}", NOW);
+        event.setSequence(11L);
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(event));
+
+        relay("http://consumer/events").relay();
+
+        // Sent again on the next pass
+        assertEquals(10, webhook.getPosition());
+        assertEquals(1.0, meterRegistry.get("discussion.outbox.delivery.failures").tag("target", "webhook").counter().count());
+        verify(changeStream).poll();
+    }
+
+    @Test
+    void locksTheCursorOnlyAfterTheBatchWasAnswered() {
+        OutboxCursor webhook = new OutboxCursor(OutboxRelay.WEBHOOK, 10);
+        when(cursorRepository.findForUpdate(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 11)));
+        when(cursorRepository.findById(OutboxRelay.WEBHOOK)).thenReturn(Optional.of(webhook));
+        when(cursorRepository.findForUpdate(OutboxRelay.WEBHOOK)).thenAnswer(invocation -> {
+            calls.add("LOCK");
+            return Optional.of(new OutboxCursor(OutboxRelay.WEBHOOK, 10));
+        });
+        OutboxEvent event = new OutboxEvent("LIKED", 1L, "{\"userId\":7}", NOW);
+        event.setSequence(11L);
+        when(outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(event));
+
+        relay("http://consumer/events").relay();
+
+        assertEquals(List.of("POST", "LOCK"), calls);
+    }
+
+    @Test
+    void deliversPostChangesToTheTimelineAndReportsSkippedEvents() {
+        when(cursorRepository.findForUpdate(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 14)));
+        when(cursorRepository.findById(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 14)));
+        OutboxCursor timeline = new OutboxCursor(OutboxRelay.TIMELINE, 10);
+        when(cursorRepository.findForUpdate(OutboxRelay.TIMELINE)).thenReturn(Optional.of(timeline));
+        when(cursorRepository.findById(OutboxRelay.TIMELINE)).thenReturn(Optional.of(timeline));
+        OutboxEvent created = new OutboxEvent("CREATED", 3L, "{\"id\":3}", NOW);
+        created.setSequence(12L);
+        when(outboxRepository.findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(eq(10L), any(), any(Limit.class)))
+                .thenReturn(List.of(created));
+
+        timelineRelay().relay();
+
+        // Likes and comments up to 14 went by as well, so the next batch continues from 14 without looking like a gap
+        assertEquals(14, timeline.getPosition());
+        assertEquals(1, webhookBodies.size());
+        assertTrue(webhookBodies.get(0).contains("\"after\":10"));
+        assertTrue(webhookBodies.get(0).contains("\"upTo\":14"));
+        assertTrue(webhookBodies.get(0).contains("\"sequence\":12,\"type\":\"CREATED\",\"postId\":3"));
+        assertEquals(1.0, meterRegistry.get("discussion.outbox.delivered").tag("target", "timeline").counter().count());
+    }
+
+    @Test
+    void deliversAChunkSizedImportInFullBatches() {
+        when(cursorRepository.findForUpdate(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 1000)));
+        when(cursorRepository.findById(OutboxRelay.SEQUENCER))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.SEQUENCER, 1000)));
+        OutboxCursor timeline = new OutboxCursor(OutboxRelay.TIMELINE, 0);
+        when(cursorRepository.findForUpdate(OutboxRelay.TIMELINE)).thenReturn(Optional.of(timeline));
+        when(cursorRepository.findById(OutboxRelay.TIMELINE)).thenReturn(Optional.of(timeline));
+        List<OutboxEvent> imported = new ArrayList<>();
+        for (long sequence = 1; sequence <= 1000; sequence++) {
+            OutboxEvent event = new OutboxEvent("CREATED", sequence, "{\"id\":" + sequence + "}", NOW);
+            event.setSequence(sequence);
+            imported.add(event);
+        }
+        when(outboxRepository.findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(eq(0L), any(), any(Limit.class)))
+                .thenReturn(imported.subList(0, 500));
+        when(outboxRepository.findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(eq(500L), any(), any(Limit.class)))
+                .thenReturn(imported.subList(500, 1000));
+        when(outboxRepository.findBySequenceGreaterThanAndTypeInOrderBySequenceAsc(eq(1000L), any(), any(Limit.class)))
+                .thenReturn(List.of());
+
+        timelineRelay().relay();
+
+        assertEquals(2, webhookBodies.size());
+        assertTrue(webhookBodies.get(1).contains("\"after\":500"));
+        assertEquals(1000, timeline.getPosition());
+    }
+
+    @Test
+    void purgesOnlyEventsTheWebhookHasReceived() {
+        when(cursorRepository.findById(OutboxRelay.WEBHOOK))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.WEBHOOK, 12)));
+        when(outboxRepository.deleteSequencedBefore(12L, NOW.minus(Duration.ofDays(7)), 500)).thenReturn(3);
+
+        relay("http://consumer/events").purge();
+
+        verify(outboxRepository).deleteSequencedBefore(12L, NOW.minus(Duration.ofDays(7)), 500);
+    }
+
+    @Test
+    void purgesOnlyEventsEveryTargetHasReceived() {
+        when(cursorRepository.findById(OutboxRelay.WEBHOOK))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.WEBHOOK, 12)));
+        when(cursorRepository.findById(OutboxRelay.TIMELINE))
+                .thenReturn(Optional.of(new OutboxCursor(OutboxRelay.TIMELINE, 9)));
+
+        newRelay("http://consumer/events", "http://feedservice/internal/timeline/events").purge();
+
+        verify(outboxRepository).deleteSequencedBefore(9L, NOW.minus(Duration.ofDays(7)), 500);
+    }
+
+    private OutboxRelay relay(String webhookUrl) {
+        return newRelay(webhookUrl, "");
+    }
+
+    private OutboxRelay timelineRelay() {
+        return newRelay("", "http://feedservice/internal/timeline/events");
+    }
+
+    private OutboxRelay newRelay(String webhookUrl, String timelineUrl) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    webhookBodies.add(bodyOf(request));
+                    calls.add("POST");
+                    return Mono.just(ClientResponse.create(webhookStatus).build());
+                })
+                .build();
+        return new OutboxRelay(outboxRepository, cursorRepository, changeStream,
+                mock(PlatformTransactionManager.class), new ObjectMapper().findAndRegisterModules(),
+                webClient, webhookUrl, Duration.ofSeconds(1), webClient, timelineUrl, Duration.ofSeconds(1),
+                500, Duration.ofDays(7), Clock.fixed(NOW, ZoneOffset.UTC), meterRegistry);
+    }
+
+    private static String bodyOf(ClientRequest request) {
+        MockClientHttpRequest body = new MockClientHttpRequest(HttpMethod.POST, URI.create("/"));
+        request.body().insert(body, new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return ExchangeStrategies.withDefaults().messageWriters();
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Map.of();
+            }
+        }).block();
+        return body.getBodyAsString().block();
+    }
+}
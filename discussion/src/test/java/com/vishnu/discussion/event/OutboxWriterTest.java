@@ -0,0 +1,69 @@
+package com.vishnu.discussion.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.OutboxEvent;
+import com.vishnu.discussion.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OutboxWriterTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private OutboxRepository outboxRepository;
+    private OutboxWriter outboxWriter;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(OutboxRepository.class);
+        outboxWriter = new OutboxWriter(outboxRepository, new ObjectMapper(), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void recordsTheLikerAndTheComment() {
+        outboxWriter.onPostActivity(PostActivityEvent.liked(1L, 7));
+        outboxWriter.onPostActivity(PostActivityEvent.commented(1L, new CommentDto(5L, "Nice", "x")));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository, times(2)).save(saved.capture());
+        OutboxEvent liked = saved.getAllValues().get(0);
+        assertEquals("LIKED", liked.getType());
+        assertEquals(1L, liked.getPostId());
+        assertEquals("{\"userId\":7}", liked.getPayload());
+        assertEquals(NOW, liked.getCreatedAt());
+        assertNull(liked.getSequence());
+        assertEquals("{\"id\":5,\"content\":\"Nice\",\"authorName\":\"x\"}", saved.getAllValues().get(1).getPayload());
+    }
+
+    @Test
+    void recordsImportedComments() {
+        outboxWriter.onPostActivity(PostActivityEvent.commentImported(1L, new CommentDto(6L, "Old", "y")));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository).save(saved.capture());
+        assertEquals("COMMENT_IMPORTED", saved.getValue().getType());
+        assertEquals("{\"id\":6,\"content\":\"Old\",\"authorName\":\"y\"}", saved.getValue().getPayload());
+    }
+
+    @Test
+    void recordsADeletedPostWithoutPayload() {
+        outboxWriter.onPostEvent(PostEvent.deleted(3L));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository).save(saved.capture());
+        assertEquals("DELETED", saved.getValue().getType());
+        assertNull(saved.getValue().getPayload());
+    }
+}
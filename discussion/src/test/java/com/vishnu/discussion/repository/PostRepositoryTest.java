@@ -1,21 +1,31 @@
 package com.vishnu.discussion.repository;
 
+import com.vishnu.discussion.SqlBudget;
+import com.vishnu.discussion.config.SqlStatsConfig;
 import com.vishnu.discussion.data.Comment;
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CommentPreview;
 import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.data.PostSummary;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SqlStatsConfig.class)
 class PostRepositoryTest {
     @Autowired
     private PostRepository postRepository;
@@ -55,17 +65,45 @@ class PostRepositoryTest {
     }
 
     @Test
-    void testFindAllWithComments() {
-        //Act
-        List<Post> posts = postRepository.findAllWithComments();
-        List<Comment> comments = commentRepository.findAll();
-        // Assert
-        assertNotNull(posts);
-        assertNotNull(comments);
-        assertEquals(4, posts.size());
-        assertEquals(6, comments.size());
-
-        assertNotNull(posts.get(0).getComments()); // Ensure comments are not null
+    void testFindPreviewsByPostIdIn() {
+        Post post5 = postRepository.save(new Post("post5", 0));
+        Post post6 = postRepository.save(new Post("post6", 0));
+        List<Comment> thread = commentRepository.saveAll(List.of(
+                new Comment("c1", post5), new Comment("c2", post5), new Comment("c3", post5), new Comment("c4", post6)));
+
+        Map<Long, CommentPreview> previews = commentRepository.findPreviewsByPostIdIn(
+                List.of(post5.getId(), post6.getId()), 2);
+
+        assertEquals(3, previews.get(post5.getId()).count());
+        assertEquals(List.of(thread.get(0).getId(), thread.get(1).getId()),
+                previews.get(post5.getId()).comments().stream().map(CommentDto::getId).toList());
+        assertEquals(1, previews.get(post6.getId()).count());
+        assertNotNull(previews.get(post6.getId()).comments().get(0).getContent());
+    }
+
+    @Test
+    void testPageWithCommentPreviewsStaysWithinItsStatementBudget() throws Exception {
+        List<Post> posts = postRepository.saveAll(IntStream.range(0, 20).mapToObj(i -> new Post("paged" + i, 0)).toList());
+        posts.forEach(post -> commentRepository.saveAll(List.of(new Comment("c1", post), new Comment("c2", post))));
+        commentRepository.flush();
+
+        // What getPostsPage reads: one query for the page and one for the previews, however many posts and comments
+        SqlBudget.statementsAtMost(2, () -> {
+            List<PostSummary> page = postRepository.findSummariesOrderByIdDesc(Limit.of(21));
+            commentRepository.findPreviewsByPostIdIn(page.stream().map(PostSummary::id).toList(), 3);
+        });
+    }
+
+    @Test
+    void testFindCommentsByKeyset() {
+        Post post5 = postRepository.save(new Post("post5", 0));
+        List<Comment> thread = commentRepository.saveAll(List.of(
+                new Comment("c1", post5), new Comment("c2", post5), new Comment("c3", post5)));
+
+        List<Comment> page = commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(
+                post5.getId(), thread.get(0).getId(), Limit.of(5));
+
+        assertEquals(List.of(thread.get(1).getId(), thread.get(2).getId()), page.stream().map(Comment::getId).toList());
     }
 
     @Test
@@ -74,6 +112,16 @@ class PostRepositoryTest {
         assertEquals(3, posts.size());
     }
 
+    @Test
+    void testFindSummariesProjectPostColumns() {
+        Post post5 = postRepository.save(new Post("post5", 2, 42));
+
+        List<PostSummary> summaries = postRepository.findSummariesByUserId(42);
+
+        assertEquals(List.of(new PostSummary(post5.getId(), "post5", 2, 42)), summaries);
+        assertEquals(5, postRepository.findAllSummaries().size());
+    }
+
     @Test
     void testFindByContentStartingWith() {
         List<Post> posts = postRepository.findByContentStartingWith("po");
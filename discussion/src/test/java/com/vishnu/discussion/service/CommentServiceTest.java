@@ -1,11 +1,59 @@
 package com.vishnu.discussion.service;
 
+import com.vishnu.discussion.data.Comment;
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CursorPage;
+import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.event.PostActivityEvent;
+import com.vishnu.discussion.exception.PostNotFoundException;
+import com.vishnu.discussion.repository.CommentRepository;
+import com.vishnu.discussion.repository.PostRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
 class CommentServiceTest {
 
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostCache postCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private CommentService commentService;
+
     @BeforeEach
     void setUp() {
     }
@@ -16,13 +64,101 @@ class CommentServiceTest {
 
     @Test
     void addCommentToPost() {
+        Post post = new Post("post", 0, 1);
+        post.setId(1L);
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+            Comment comment = invocation.getArgument(0);
+            comment.setId(5L);
+            return comment;
+        });
+        CommentDto commentDto = new CommentDto();
+        commentDto.setContent("Nice");
+
+        CommentDto created = commentService.addCommentToPost(1L, commentDto);
+
+        assertEquals(5L, created.getId());
+        verify(postCache).evictComment(5L, 1L);
+        verify(eventPublisher).publishEvent(PostActivityEvent.commented(1L, created));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addCommentsToPostCommitsEveryChunkOnItsOwn() {
+        ReflectionTestUtils.setField(commentService, "bulkChunkSize", 2);
+        Post post = new Post("post", 0, 1);
+        post.setId(1L);
+        when(postRepository.existsById(1L)).thenReturn(true);
+        when(postRepository.getReferenceById(1L)).thenReturn(post);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        when(commentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        List<CommentDto> commentDtos = List.of(
+                new CommentDto(null, "a", "x"), new CommentDto(null, "b", "y"), new CommentDto(null, "c", "z"));
+
+        List<CommentDto> added = commentService.addCommentsToPost(1L, commentDtos);
+
+        assertEquals(List.of("a", "b", "c"), added.stream().map(CommentDto::getContent).toList());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(postCache, times(2)).evictComment(null, 1L);
+        // Imported comments are recorded but do not count as fresh activity for trending
+        verify(eventPublisher).publishEvent(PostActivityEvent.commentImported(1L, added.get(2)));
+        verify(eventPublisher, times(3)).publishEvent(any(PostActivityEvent.class));
+    }
+
+    @Test
+    void addCommentsToAMissingPostFails() {
+        when(postRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(PostNotFoundException.class,
+                () -> commentService.addCommentsToPost(9L, List.of(new CommentDto(null, "a", "x"))));
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void deleteCommentById() throws Exception {
+        Post post = new Post("post", 0, 1);
+        post.setId(1L);
+        Comment comment = new Comment("Nice", post);
+        comment.setId(5L);
+        when(commentRepository.findById(5L)).thenReturn(Optional.of(comment));
+
+        commentService.deleteCommentById(5L);
+
+        verify(commentRepository).deleteById(5L);
+        verify(postCache).evictComment(5L, 1L);
+        verify(eventPublisher).publishEvent(
+                PostActivityEvent.commentDeleted(1L, new CommentDto(5L, "Nice", null)));
     }
 
     @Test
-    void deleteCommentById() {
+    void getCommentsPagesOldestFirst() {
+        Post post = new Post("post", 0, 1);
+        post.setId(1L);
+        when(postRepository.existsById(1L)).thenReturn(true);
+        when(commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(1L, 5L, Limit.of(3)))
+                .thenReturn(List.of(comment(6L, post), comment(7L, post), comment(8L, post)));
+
+        CursorPage<CommentDto> page = commentService.getComments(1L, Cursors.encodeId(5), 2);
+
+        assertEquals(List.of(6L, 7L), page.getItems().stream().map(CommentDto::getId).toList());
+        assertEquals(Cursors.encodeId(7), page.getNextCursor());
+    }
+
+    @Test
+    void getCommentsOfAMissingPostFails() {
+        when(postRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(PostNotFoundException.class, () -> commentService.getComments(9L, null, 20));
     }
 
     @Test
     void createComment() {
     }
-}
\ No newline at end of file
+
+    private static Comment comment(Long id, Post post) {
+        Comment comment = new Comment("comment" + id, post);
+        comment.setId(id);
+        return comment;
+    }
+}
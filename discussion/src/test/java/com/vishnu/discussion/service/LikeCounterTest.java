@@ -0,0 +1,117 @@
+package com.vishnu.discussion.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikeCounterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PostCache postCache;
+    private LikeCounter likeCounter;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        postCache = mock(PostCache.class);
+        likeCounter = new LikeCounter(jdbcTemplate, postCache, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void currentIncludesPendingDeltas() {
+        likeCounter.add(1L, 1);
+        likeCounter.add(1L, 1);
+        likeCounter.add(1L, -1);
+
+        assertEquals(6, likeCounter.current(1L, 5));
+        assertEquals(0, likeCounter.current(2L, null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesOneBatchAndClearsDeltas() {
+        likeCounter.add(1L, 1);
+        likeCounter.add(1L, 1);
+        likeCounter.add(2L, -1);
+
+        likeCounter.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertArrayEquals(new Object[]{2L, 1L}, batch.getValue().stream().filter(row -> row[1].equals(1L)).findFirst().orElseThrow());
+        assertEquals(5, likeCounter.current(1L, 5));
+        ArgumentCaptor<List<Long>> evicted = ArgumentCaptor.forClass(List.class);
+        verify(postCache).evictPosts(evicted.capture());
+        assertEquals(Set.of(1L, 2L), Set.copyOf(evicted.getValue()));
+    }
+
+    @Test
+    void flushWithoutDeltasSkipsTheDatabase() {
+        likeCounter.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedFlushKeepsDeltasForTheNextOne() {
+        likeCounter.add(1L, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("db down"));
+
+        likeCounter.flush();
+
+        assertEquals(3, likeCounter.current(1L, 0));
+        verify(postCache, never()).evictPosts(anyList());
+    }
+
+    @Test
+    void closeFlushesPendingDeltas() {
+        likeCounter.add(1L, 1);
+
+        likeCounter.close();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(0, likeCounter.current(1L, 0));
+    }
+
+    @Test
+    void reconcileSkipsLikesWhoseTransactionHasNotEnded() throws Exception {
+        ResultSet drifted = mock(ResultSet.class);
+        when(drifted.getLong(1)).thenReturn(1L);
+        when(drifted.getLong(2)).thenReturn(4L);
+        when(drifted.getLong(3)).thenReturn(5L);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(drifted);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            likeCounter.add(1L, 1);
+
+            likeCounter.reconcile();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
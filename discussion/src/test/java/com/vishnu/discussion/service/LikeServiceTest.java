@@ -0,0 +1,89 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.event.PostActivityEvent;
+import com.vishnu.discussion.exception.PostNotFoundException;
+import com.vishnu.discussion.repository.LikeRepository;
+import com.vishnu.discussion.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LikeServiceTest {
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private LikeCounter likeCounter;
+
+    @Mock
+    private LikerIndex likerIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private LikeService likeService;
+
+    @Test
+    void addLikeCountsANewLike() {
+        when(likeRepository.insertIfAbsent(1L, 7)).thenReturn(1);
+        when(postRepository.findLikesById(1L)).thenReturn(Optional.of(4));
+        when(likeCounter.current(1L, 4)).thenReturn(4);
+
+        assertEquals(5, likeService.addLike(1L, 7));
+        verify(likeCounter).add(1L, 1);
+        verify(likerIndex).add(1L, 7);
+        verify(eventPublisher).publishEvent(PostActivityEvent.liked(1L, 7));
+    }
+
+    @Test
+    void repeatedLikeIsANoOp() {
+        when(likeRepository.insertIfAbsent(1L, 7)).thenReturn(0);
+        when(postRepository.findLikesById(1L)).thenReturn(Optional.of(5));
+        when(likeCounter.current(1L, 5)).thenReturn(5);
+
+        assertEquals(5, likeService.addLike(1L, 7));
+        verify(likeCounter, never()).add(anyLong(), anyInt());
+        verify(likerIndex, never()).add(anyLong(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void likingAMissingPostFails() {
+        when(postRepository.findLikesById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(PostNotFoundException.class, () -> likeService.addLike(9L, 7));
+        verify(likeRepository, never()).insertIfAbsent(9L, 7);
+    }
+
+    @Test
+    void removeLikeUncountsAnExistingLike() {
+        when(likeRepository.deleteIfPresent(1L, 7)).thenReturn(1);
+        when(postRepository.findLikesById(1L)).thenReturn(Optional.of(5));
+        when(likeCounter.current(1L, 5)).thenReturn(5);
+
+        assertEquals(4, likeService.removeLike(1L, 7));
+        verify(likeCounter).add(1L, -1);
+        verify(likerIndex).remove(1L, 7);
+        verify(eventPublisher).publishEvent(PostActivityEvent.unliked(1L, 7));
+    }
+}
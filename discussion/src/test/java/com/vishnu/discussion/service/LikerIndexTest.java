@@ -0,0 +1,119 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.exception.PostNotFoundException;
+import com.vishnu.discussion.repository.LikeRepository;
+import com.vishnu.discussion.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikerIndexTest {
+
+    private LikeRepository likeRepository;
+    private PostRepository postRepository;
+    private LikerIndex likerIndex;
+
+    @BeforeEach
+    void setUp() {
+        likeRepository = mock(LikeRepository.class);
+        postRepository = mock(PostRepository.class);
+        // Every post exists unless a test says otherwise
+        when(postRepository.findIdsByIdIn(anyCollection()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<Long>>getArgument(0)));
+        likerIndex = new LikerIndex(likeRepository, postRepository, mock(PlatformTransactionManager.class), 1 << 20,
+                Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void loadsMissingPostsWithOneQueryAndThenAnswersFromMemory() {
+        when(likeRepository.findUserIdsByPostIdIn(List.of(1L, 2L))).thenReturn(Map.of(1L, new int[]{8, 7}));
+
+        Map<Long, int[]> likers = likerIndex.userIds(List.of(1L, 2L));
+
+        assertArrayEquals(new int[]{7, 8}, likers.get(1L));
+        assertArrayEquals(new int[0], likers.get(2L));
+        assertTrue(likerIndex.contains(1L, 7));
+        assertFalse(likerIndex.contains(2L, 7));
+        assertEquals(2, likerIndex.count(1L));
+        verify(likeRepository, times(1)).findUserIdsByPostIdIn(anyCollection());
+    }
+
+    @Test
+    void likesAndUnlikesUpdateLoadedPosts() {
+        when(likeRepository.findUserIdsByPostIdIn(List.of(1L))).thenReturn(Map.of(1L, new int[]{7}));
+        likerIndex.count(1L);
+
+        likerIndex.add(1L, 9);
+        likerIndex.remove(1L, 7);
+
+        assertArrayEquals(new int[]{9}, likerIndex.userIds(1L));
+        verify(likeRepository, times(1)).findUserIdsByPostIdIn(anyCollection());
+    }
+
+    @Test
+    void pagesLikersInAscendingOrder() {
+        when(likeRepository.findUserIdsByPostIdIn(List.of(1L))).thenReturn(Map.of(1L, new int[]{5, 1, 3, 9, 7}));
+
+        assertEquals(List.of(1, 3), likerIndex.page(1L, null, 2));
+        assertEquals(List.of(5, 7), likerIndex.page(1L, 3, 2));
+        assertEquals(List.of(9), likerIndex.page(1L, 7, 2));
+        assertEquals(List.of(), likerIndex.page(1L, 9, 2));
+    }
+
+    @Test
+    void invalidatedPostsAreReloaded() {
+        when(likeRepository.findUserIdsByPostIdIn(List.of(1L)))
+                .thenReturn(Map.of(1L, new int[]{7}))
+                .thenReturn(Map.of());
+        likerIndex.count(1L);
+
+        likerIndex.invalidate(1L);
+
+        assertEquals(0, likerIndex.count(1L));
+        verify(likeRepository, times(2)).findUserIdsByPostIdIn(anyCollection());
+    }
+
+    @Test
+    void aLikeDuringALoadOnlyKeepsThatPostOutOfTheIndex() {
+        when(likeRepository.findUserIdsByPostIdIn(List.of(1L, 2L))).thenAnswer(invocation -> {
+            likerIndex.add(2L, 5);
+            return Map.of(1L, new int[]{7}, 2L, new int[]{8});
+        });
+        when(likeRepository.findUserIdsByPostIdIn(List.of(2L))).thenReturn(Map.of(2L, new int[]{5, 8}));
+        likerIndex.userIds(List.of(1L, 2L));
+
+        assertEquals(1, likerIndex.count(1L));
+        assertEquals(2, likerIndex.count(2L));
+        verify(likeRepository, times(1)).findUserIdsByPostIdIn(List.of(2L));
+        verify(likeRepository, times(2)).findUserIdsByPostIdIn(anyCollection());
+    }
+
+    @Test
+    void missingPostsAreNotFoundAndNotIndexed() {
+        when(postRepository.findIdsByIdIn(List.of(3L))).thenReturn(List.of());
+
+        assertThrows(PostNotFoundException.class, () -> likerIndex.count(3L));
+        assertThrows(PostNotFoundException.class, () -> likerIndex.contains(3L, 7));
+        assertArrayEquals(new int[0], likerIndex.userIds(List.of(3L)).get(3L));
+        verify(postRepository, times(3)).findIdsByIdIn(List.of(3L));
+        verify(likeRepository, never()).findUserIdsByPostIdIn(anyCollection());
+    }
+}
@@ -0,0 +1,83 @@
+package com.vishnu.discussion.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostPurgerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PostCache postCache;
+    private SimpleMeterRegistry meterRegistry;
+    private PostPurger postPurger;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        postCache = mock(PostCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        postPurger = new PostPurger(jdbcTemplate, postCache, 2,
+                Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC), meterRegistry);
+    }
+
+    @Test
+    void tombstoneReportsWhetherALivePostWasMarked() {
+        when(jdbcTemplate.update(startsWith("UPDATE posts SET deleted_at"), any(), eq(1L))).thenReturn(1);
+
+        assertTrue(postPurger.tombstone(1L));
+        assertFalse(postPurger.tombstone(2L));
+    }
+
+    @Test
+    void purgesCommentsAndLikesInChunksBeforeThePost() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM posts"), eq(Long.class), any()))
+                .thenReturn(List.of(1L));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM comments"), eq(Long.class), eq(1L), eq(2)))
+                .thenReturn(List.of(10L, 11L), List.of(12L));
+        when(jdbcTemplate.update(startsWith("DELETE FROM likes"), eq(1L), eq(2))).thenReturn(2, 1);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class))).thenReturn(0L);
+
+        postPurger.purge();
+
+        verify(jdbcTemplate).update(startsWith("DELETE FROM comments"), eq(1L), eq(11L));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM comments"), eq(1L), eq(12L));
+        verify(postCache).evictComments(List.of(10L, 11L));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM posts"), eq(1L));
+        assertEquals(3.0, meterRegistry.get("discussion.posts.purge.rows").tag("table", "comments").counter().count());
+        assertEquals(3.0, meterRegistry.get("discussion.posts.purge.rows").tag("table", "likes").counter().count());
+        assertEquals(1.0, meterRegistry.get("discussion.posts.purged").counter().count());
+    }
+
+    @Test
+    void keepsTheTombstoneWhenPurgingFails() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM posts"), eq(Long.class), any()))
+                .thenReturn(List.of(1L));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM comments"), eq(Long.class), anyLong(), any()))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class))).thenReturn(1L);
+
+        postPurger.purge();
+
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM posts"), eq(1L));
+        assertEquals(1.0, meterRegistry.get("discussion.posts.tombstones").gauge().value());
+    }
+}
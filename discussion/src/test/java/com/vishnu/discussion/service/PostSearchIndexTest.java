@@ -0,0 +1,182 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.data.CursorPage;
+import com.vishnu.discussion.data.PostDto;
+import com.vishnu.discussion.data.PostSearchHit;
+import com.vishnu.discussion.data.PostSummary;
+import com.vishnu.discussion.event.PostEvent;
+import com.vishnu.discussion.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostSearchIndexTest {
+
+    private PostRepository postRepository;
+    private Directory directory;
+    private PostSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        postRepository = mock(PostRepository.class);
+        directory = new ByteBuffersDirectory();
+        searchIndex = open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.close();
+    }
+
+    @Test
+    void ranksMatchingPostsByRelevance() throws Exception {
+        searchIndex.onPostEvent(PostEvent.created(post(1L, "Weekend hiking trip to the lakes")));
+        searchIndex.onPostEvent(PostEvent.created(post(2L, "Hiking, hiking and more hiking")));
+        searchIndex.onPostEvent(PostEvent.created(post(3L, "Cooking pasta tonight")));
+        searchIndex.refresh();
+
+        CursorPage<PostSearchHit> page = searchIndex.search("hiking", null, 10);
+
+        assertEquals(List.of(2L, 1L), page.getItems().stream().map(PostSearchHit::id).toList());
+        assertEquals("Weekend hiking trip to the lakes", page.getItems().get(1).content());
+        assertEquals(7, page.getItems().get(1).userId());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void updatesReplaceAndDeletesRemovePosts() throws Exception {
+        searchIndex.onPostEvent(PostEvent.created(post(1L, "first draft")));
+        searchIndex.onPostEvent(PostEvent.created(post(2L, "another draft")));
+        searchIndex.onPostEvent(PostEvent.updated(post(1L, "final version")));
+        searchIndex.onPostEvent(PostEvent.deleted(2L));
+        searchIndex.refresh();
+
+        assertEquals(List.of(), searchIndex.search("draft", null, 10).getItems());
+        assertEquals(List.of(1L), searchIndex.search("final", null, 10).getItems().stream().map(PostSearchHit::id).toList());
+    }
+
+    @Test
+    void pagesThroughHitsWithCursors() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            searchIndex.onPostEvent(PostEvent.created(post(id, "same words")));
+        }
+        searchIndex.refresh();
+
+        CursorPage<PostSearchHit> first = searchIndex.search("words", null, 2);
+        CursorPage<PostSearchHit> second = searchIndex.search("words", first.getNextCursor(), 2);
+        CursorPage<PostSearchHit> third = searchIndex.search("words", second.getNextCursor(), 2);
+
+        // Equal scores fall back to newest first
+        assertEquals(List.of(5L, 4L), first.getItems().stream().map(PostSearchHit::id).toList());
+        assertEquals(List.of(3L, 2L), second.getItems().stream().map(PostSearchHit::id).toList());
+        assertEquals(List.of(1L), third.getItems().stream().map(PostSearchHit::id).toList());
+        assertNull(third.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> searchIndex.search("words", Cursors.encodeId(3), 2));
+    }
+
+    @Test
+    void rebuildsFromThePostsTableWhenCountsDiffer() throws Exception {
+        commitCleanIndex(0);
+        when(postRepository.count()).thenReturn(2L);
+        when(postRepository.streamAllSummariesOrderByIdDesc()).thenReturn(Stream.of(
+                new PostSummary(2L, "rebuilt second", 0, 1), new PostSummary(1L, "rebuilt first", 0, 1)));
+
+        searchIndex.rebuildIfStale();
+
+        verify(postRepository).streamAllSummariesOrderByIdDesc();
+        assertEquals(2, searchIndex.search("rebuilt", null, 10).getItems().size());
+    }
+
+    @Test
+    void rebuildsAfterAnUncleanShutdown() throws Exception {
+        // A fresh directory has no clean close recorded, like one whose last changes were lost in a crash
+        when(postRepository.streamAllSummariesOrderByIdDesc()).thenReturn(Stream.of());
+
+        searchIndex.rebuildIfStale();
+
+        verify(postRepository).streamAllSummariesOrderByIdDesc();
+        assertEquals("false", SegmentInfos.readLatestCommit(directory).getUserData().get(PostSearchIndex.CLEAN));
+    }
+
+    @Test
+    void keepsACleanIndexThatIsLevelWithThePostsTable() throws Exception {
+        commitCleanIndex(2);
+        when(postRepository.findHighestId()).thenReturn(2L);
+        when(postRepository.count()).thenReturn(2L);
+
+        searchIndex.rebuildIfStale();
+
+        verify(postRepository, never()).streamAllSummariesOrderByIdDesc();
+        assertEquals(2, searchIndex.search("kept", null, 10).getItems().size());
+    }
+
+    @Test
+    void rebuildsWhenPostsWereAddedPastTheHighestIndexedId() throws Exception {
+        commitCleanIndex(2);
+        when(postRepository.findHighestId()).thenReturn(3L);
+        when(postRepository.count()).thenReturn(2L);
+        when(postRepository.streamAllSummariesOrderByIdDesc()).thenReturn(Stream.of());
+
+        searchIndex.rebuildIfStale();
+
+        verify(postRepository).streamAllSummariesOrderByIdDesc();
+    }
+
+    @Test
+    void searchesSeeTheOldIndexAndEventsWinOverRowsDuringARebuild() throws Exception {
+        searchIndex.onPostEvent(PostEvent.created(post(1L, "old text")));
+        searchIndex.refresh();
+        when(postRepository.streamAllSummariesOrderByIdDesc()).thenAnswer(invocation -> {
+            searchIndex.onPostEvent(PostEvent.updated(post(1L, "edited text")));
+            searchIndex.refresh();
+            assertEquals(1, searchIndex.search("old", null, 10).getItems().size());
+            return Stream.of(new PostSummary(1L, "stale text", 0, 7));
+        });
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(), searchIndex.search("stale", null, 10).getItems());
+        assertEquals(1, searchIndex.search("edited", null, 10).getItems().size());
+    }
+
+    // Reopens the index on a directory whose last commit is a clean close holding posts 1 to highestId
+    private void commitCleanIndex(long highestId) throws Exception {
+        for (long id = 1; id <= highestId; id++) {
+            searchIndex.onPostEvent(PostEvent.created(post(id, "kept")));
+        }
+        searchIndex.close();
+        searchIndex = open();
+    }
+
+    // The index closes its directory, which has to outlive it to be reopened
+    private PostSearchIndex open() throws Exception {
+        Directory unclosable = new FilterDirectory(directory) {
+            @Override
+            public void close() {
+            }
+        };
+        return new PostSearchIndex(unclosable, postRepository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+    }
+
+    private static PostDto post(Long id, String content) {
+        return new PostDto(id, content, 0, List.of(), 7, List.of());
+    }
+}
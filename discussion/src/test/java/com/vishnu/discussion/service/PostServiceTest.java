@@ -1,13 +1,74 @@
 package com.vishnu.discussion.service;
 
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.CommentPreview;
+import com.vishnu.discussion.data.Post;
+import com.vishnu.discussion.data.PostDto;
+import com.vishnu.discussion.data.PostSummary;
+import com.vishnu.discussion.event.PostEvent;
+import com.vishnu.discussion.exception.PostNotFoundException;
+import com.vishnu.discussion.repository.CommentRepository;
+import com.vishnu.discussion.repository.PostRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
 class PostServiceTest {
 
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private LikerIndex likerIndex;
+
+    @Mock
+    private LikeCounter likeCounter;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private PostCache postCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PostPurger postPurger;
+
+    @InjectMocks
+    private PostService postService;
+
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(postService, "commentPreviewSize", 3);
     }
 
     @AfterEach
@@ -18,6 +79,31 @@ class PostServiceTest {
     void createPost() {
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void createPostsCommitsEveryChunkOnItsOwn() {
+        ReflectionTestUtils.setField(postService, "bulkChunkSize", 2);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        AtomicLong ids = new AtomicLong();
+        when(postRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Post> posts = invocation.getArgument(0);
+            posts.forEach(post -> post.setId(ids.incrementAndGet()));
+            return posts;
+        });
+        List<PostDto> postDtos = LongStream.rangeClosed(1, 5)
+                .mapToObj(i -> new PostDto(null, "post" + i, null, null, 1, null))
+                .toList();
+
+        List<PostDto> created = postService.createPosts(postDtos);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), created.stream().map(PostDto::getId).toList());
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(postCache, times(3)).skipPutsInCurrentTransaction();
+        verify(eventPublisher, times(5)).publishEvent(any(Object.class));
+        verify(likerIndex, never()).userIds(anyList());
+    }
+
     @Test
     void updatePost() {
     }
@@ -30,11 +116,66 @@ class PostServiceTest {
     void getAllPosts() {
     }
 
+    @Test
+    void getAllPostsLooksUpLikersInOneBatch() {
+        List<PostSummary> posts = List.of(post(1L), post(2L), post(3L));
+        when(postRepository.findAllSummaries()).thenReturn(posts);
+        when(likerIndex.userIds(List.of(1L, 2L, 3L)))
+                .thenReturn(Map.of(1L, new int[]{7, 8}, 2L, new int[0], 3L, new int[]{9}));
+
+        List<PostDto> result = postService.getAllPosts();
+
+        assertEquals(List.of(7, 8), result.get(0).getLikedBy());
+        assertEquals(List.of(), result.get(1).getLikedBy());
+        assertEquals(List.of(9), result.get(2).getLikedBy());
+        assertEquals(0, result.get(0).getCommentCount());
+        assertEquals(List.of(), result.get(0).getComments());
+        verify(likerIndex, times(1)).userIds(List.of(1L, 2L, 3L));
+        verify(likerIndex, never()).userIds(anyLong());
+    }
+
     @Test
     void getAllPostsWithComments() {
     }
 
+    @Test
+    void postsCarryCommentPreviewsFromOneQuery() {
+        List<PostSummary> posts = List.of(post(1L), post(2L));
+        when(postRepository.findSummariesByUserId(1)).thenReturn(posts);
+        when(likerIndex.userIds(List.of(1L, 2L))).thenReturn(Map.of(1L, new int[0], 2L, new int[0]));
+        List<CommentDto> preview = List.of(new CommentDto(10L, "first", "a"), new CommentDto(11L, "second", "b"));
+        when(commentRepository.findPreviewsByPostIdIn(List.of(1L, 2L), 3))
+                .thenReturn(Map.of(2L, new CommentPreview(7, preview)));
+
+        List<PostDto> result = postService.getPostsByUserId(1);
+
+        assertEquals(0, result.get(0).getCommentCount());
+        assertEquals(7, result.get(1).getCommentCount());
+        assertEquals(preview, result.get(1).getComments());
+        verify(commentRepository, times(1)).findPreviewsByPostIdIn(List.of(1L, 2L), 3);
+    }
+
     @Test
     void deletePostById() {
+        when(postPurger.tombstone(1L)).thenReturn(true);
+
+        postService.deletePostById(1L);
+
+        verify(postRepository, never()).deleteById(anyLong());
+        verify(likerIndex).invalidate(1L);
+        verify(postCache).evictPost(1L);
+        verify(eventPublisher).publishEvent(PostEvent.deleted(1L));
+    }
+
+    @Test
+    void deletingAMissingPostFails() {
+        when(postPurger.tombstone(9L)).thenReturn(false);
+
+        assertThrows(PostNotFoundException.class, () -> postService.deletePostById(9L));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private static PostSummary post(Long id) {
+        return new PostSummary(id, "post" + id, 0, 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package com.vishnu.discussion.service;
+
+import com.vishnu.discussion.data.CommentDto;
+import com.vishnu.discussion.data.TrendingPost;
+import com.vishnu.discussion.event.PostActivityEvent;
+import com.vishnu.discussion.event.PostEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendingPostsTest {
+
+    private static final CommentDto COMMENT = new CommentDto(1L, "Nice", "x");
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private TrendingPosts trendingPosts;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        trendingPosts = new TrendingPosts(clock, Duration.ofHours(1), Duration.ofMinutes(1), Duration.ofMinutes(30),
+                3, 2, 10, meterRegistry);
+    }
+
+    @Test
+    void ranksPostsByDecayedActivity() {
+        for (int i = 0; i < 3; i++) {
+            trendingPosts.onPostActivity(PostActivityEvent.liked(1L, 7));
+        }
+        clock.advance(Duration.ofMinutes(30));
+        trendingPosts.onPostActivity(PostActivityEvent.commented(2L, COMMENT));
+        trendingPosts.onPostActivity(PostActivityEvent.liked(3L, 7));
+
+        trendingPosts.refresh();
+
+        // Three likes half an hour ago weigh 1.5 now, less than a fresh comment
+        List<TrendingPost> top = trendingPosts.top(10);
+        assertEquals(List.of(2L, 1L), top.stream().map(TrendingPost::postId).toList());
+        assertEquals(3.0, top.get(0).score(), 1e-9);
+        assertEquals(1.5, top.get(1).score(), 1e-9);
+        assertEquals(3, top.get(1).likes());
+        assertEquals(1, top.get(0).comments());
+        assertEquals(1, trendingPosts.top(1).size());
+    }
+
+    @Test
+    void countsOnlyActivityWithinTheWindow() {
+        trendingPosts.onPostActivity(PostActivityEvent.liked(1L, 7));
+        clock.advance(Duration.ofMinutes(61));
+        trendingPosts.onPostActivity(PostActivityEvent.liked(1L, 7));
+        trendingPosts.onPostActivity(PostActivityEvent.commented(1L, COMMENT));
+
+        trendingPosts.refresh();
+
+        TrendingPost post = trendingPosts.top(1).get(0);
+        assertEquals(1, post.likes());
+        assertEquals(1, post.comments());
+    }
+
+    @Test
+    void tracksABoundedNumberOfPostsAndForgetsTheQuietest() {
+        for (long postId = 1; postId <= 11; postId++) {
+            trendingPosts.onPostActivity(PostActivityEvent.liked(postId, 7));
+        }
+        assertEquals(1.0, meterRegistry.get("discussion.trending.dropped").counter().count());
+        assertEquals(10.0, meterRegistry.get("discussion.trending.posts").gauge().value());
+
+        trendingPosts.onPostActivity(PostActivityEvent.commented(10L, COMMENT));
+        trendingPosts.refresh();
+
+        assertEquals(9.0, meterRegistry.get("discussion.trending.posts").gauge().value());
+        assertEquals(10L, trendingPosts.top(1).get(0).postId());
+
+        clock.advance(Duration.ofHours(5));
+        trendingPosts.refresh();
+
+        assertEquals(0.0, meterRegistry.get("discussion.trending.posts").gauge().value());
+        assertTrue(trendingPosts.top(10).isEmpty());
+    }
+
+    @Test
+    void ignoresImportedCommentsAndRemovalsWithoutTakingSlots() {
+        for (long postId = 1; postId <= 10; postId++) {
+            trendingPosts.onPostActivity(PostActivityEvent.commentImported(postId, COMMENT));
+            trendingPosts.onPostActivity(PostActivityEvent.unliked(postId, 7));
+            trendingPosts.onPostActivity(PostActivityEvent.commentDeleted(postId, COMMENT));
+        }
+        assertEquals(0.0, meterRegistry.get("discussion.trending.posts").gauge().value());
+
+        trendingPosts.onPostActivity(PostActivityEvent.liked(11L, 7));
+        trendingPosts.refresh();
+
+        assertEquals(0.0, meterRegistry.get("discussion.trending.dropped").counter().count());
+        assertEquals(List.of(11L), trendingPosts.top(10).stream().map(TrendingPost::postId).toList());
+    }
+
+    @Test
+    void forgetsDeletedPosts() {
+        trendingPosts.onPostActivity(PostActivityEvent.liked(1L, 7));
+        trendingPosts.onPostEvent(PostEvent.deleted(1L));
+
+        trendingPosts.refresh();
+
+        assertTrue(trendingPosts.top(10).isEmpty());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -30,14 +30,15 @@ dependencies {
     implementation("io.github.resilience4j:resilience4j-spring-boot2:${property("resilience4jVersion")}")
     implementation("io.github.resilience4j:resilience4j-circuitbreaker:${property("resilience4jVersion")}")
     implementation("io.github.resilience4j:resilience4j-core:${property("resilience4jVersion")}")
+    implementation("io.github.resilience4j:resilience4j-reactor:${property("resilience4jVersion")}")
     implementation("org.springframework.boot:spring-boot-starter-aop")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     implementation("org.springframework.cloud:spring-cloud-starter-netflix-eureka-client")
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("mysql:mysql-connector-java:8.0.33")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
-    implementation("org.springframework.boot:spring-boot-starter-web")
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
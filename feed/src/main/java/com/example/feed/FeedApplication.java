@@ -1,5 +1,9 @@
 package com.example.feed;
 
+import com.example.feed.cache.SingleFlight;
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.FeedDto;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
@@ -21,4 +25,10 @@ public class FeedApplication {
         return WebClient.builder();
     }
 
+    // Concurrent requests for the same feed page share one round of downstream calls
+    @Bean
+    public SingleFlight<String, CursorPage<FeedDto>> feedPageLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("feed.page.loads", meterRegistry);
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.example.feed.cache;
+
+import com.example.feed.data.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded near-cache of author profiles keyed by user id.
+ * <p>
+ * Profile names rarely change, so a feed page only goes to the users service for the ids that are not cached yet.
+ * Concurrent lookups of the same missing ids share one load. Hit, miss and eviction counts are published as the
+ * {@code cache.*} metrics with {@code cache=feed.authors}.
+ */
+@Slf4j
+@Component
+public class AuthorCache {
+    private static final String CACHE_NAME = "feed.authors";
+
+    private final AsyncCache<Integer, User> cache;
+
+    public AuthorCache(@Value("${feed.author-cache.maximum-size:10000}") long maximumSize,
+                       @Value("${feed.author-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                       MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached authors for {@code ids}, calling {@code loader} once with all ids that are missing.
+     * Ids the loader does not return are left out of the result and are not cached.
+     */
+    public Mono<Map<Integer, User>> getAll(Collection<Integer> ids, Function<Set<Integer>, Mono<Map<Integer, User>>> loader) {
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return Mono.fromFuture(() -> cache.getAll(ids, (missing, executor) -> {
+            log.debug("Loading {} uncached authors", missing.size());
+            return loader.apply(Set.copyOf(missing)).toFuture();
+        }));
+    }
+
+    /**
+     * Whatever is cached for {@code ids} right now, without loading anything.
+     */
+    public Map<Integer, User> getAllPresent(Collection<Integer> ids) {
+        return cache.synchronous().getAllPresent(ids);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.feed.cache;
+
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.FeedDto;
+import com.example.feed.service.Cursors;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Last first page of the feed that was built successfully from the downstream services.
+ * <p>
+ * The page is replaced atomically as a whole, so readers always see one consistent page together with the time it
+ * was taken. It backs two things: the circuit-breaker fallback, which serves it however old it is, and
+ * stale-while-revalidate, where a copy older than {@code fresh-for} but within {@code stale-while-revalidate} is
+ * served immediately while one background refresh replaces it.
+ */
+@Component
+public class FeedSnapshot {
+
+    public record Entry(CursorPage<FeedDto> page, Instant takenAt) {
+
+        /**
+         * Whether the snapshot holds enough posts to answer a first page of {@code limit} posts.
+         */
+        public boolean covers(int limit) {
+            return page.getItems().size() >= limit || page.getNextCursor() == null;
+        }
+
+        /**
+         * The first {@code limit} posts of the snapshot, stamped with the time the snapshot was taken.
+         */
+        public CursorPage<FeedDto> firstPage(int limit) {
+            List<FeedDto> items = page.getItems();
+            if (items.size() <= limit) {
+                return new CursorPage<>(items, page.getNextCursor(), takenAt);
+            }
+            List<FeedDto> head = items.subList(0, limit);
+            return new CursorPage<>(head, Cursors.encodeId(head.get(limit - 1).getPost().getId()), takenAt);
+        }
+    }
+
+    private final AtomicReference<Entry> latest = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Duration freshFor;
+    private final Duration staleWhileRevalidate;
+    private final Clock clock;
+
+    @Autowired
+    public FeedSnapshot(@Value("${feed.snapshot.fresh-for:2s}") Duration freshFor,
+                        @Value("${feed.snapshot.stale-while-revalidate:30s}") Duration staleWhileRevalidate,
+                        MeterRegistry meterRegistry) {
+        this(freshFor, staleWhileRevalidate, Clock.systemUTC());
+        Gauge.builder("feed.snapshot.age", this, snapshot -> snapshot.latest()
+                        .map(entry -> (double) snapshot.ageOf(entry).toMillis() / 1000)
+                        .orElse(Double.NaN))
+                .description("Seconds since the last successfully built first feed page")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    FeedSnapshot(Duration freshFor, Duration staleWhileRevalidate, Clock clock) {
+        this.freshFor = freshFor;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.clock = clock;
+    }
+
+    public void record(CursorPage<FeedDto> page) {
+        latest.set(new Entry(page, clock.instant()));
+    }
+
+    public Optional<Entry> latest() {
+        return Optional.ofNullable(latest.get());
+    }
+
+    public Duration ageOf(Entry entry) {
+        return Duration.between(entry.takenAt(), clock.instant());
+    }
+
+    public boolean isFresh(Entry entry) {
+        return ageOf(entry).compareTo(freshFor) <= 0;
+    }
+
+    /**
+     * Whether the snapshot may still be served while it is being refreshed.
+     */
+    public boolean isServableStale(Entry entry) {
+        return ageOf(entry).compareTo(freshFor.plus(staleWhileRevalidate)) <= 0;
+    }
+
+    /**
+     * Claims the single background refresh slot; returns false if a refresh is already running.
+     */
+    public boolean tryBeginRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    public void endRefresh() {
+        refreshing.set(false);
+    }
+}
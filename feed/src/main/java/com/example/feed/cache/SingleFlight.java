@@ -0,0 +1,59 @@
+package com.example.feed.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical loads into one.
+ * <p>
+ * The first caller for a key starts the load; callers arriving with the same key while it is in flight subscribe to
+ * the same result (value or error) instead of starting their own. The key is forgotten as soon as the load finishes,
+ * so nothing is cached beyond the lifetime of the load. Callers are counted in {@code <name>.calls}, tagged
+ * {@code result=leader} or {@code result=coalesced}, and {@code <name>.in-flight} reports the loads running.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaders = Counter.builder(name + ".calls")
+                .tag("result", "leader")
+                .description("Callers that started a load")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(name + ".calls")
+                .tag("result", "coalesced")
+                .description("Callers that joined a load already in flight")
+                .register(meterRegistry);
+        Gauge.builder(name + ".in-flight", inFlight, ConcurrentMap::size).register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> load) {
+        return Mono.defer(() -> {
+            Mono<V> running = inFlight.get(key);
+            if (running != null) {
+                coalesced.increment();
+                return running;
+            }
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            Mono<V> shared = Mono.defer(load)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .cache();
+            self.set(shared);
+            running = inFlight.putIfAbsent(key, shared);
+            if (running != null) {
+                coalesced.increment();
+                return running;
+            }
+            leaders.increment();
+            return shared;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.feed.client;
+
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.PostDto;
+import com.example.feed.service.DownstreamGuard;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.feed.client.DownstreamWebClients.authorization;
+
+/**
+ * Calls to DISCUSSION, guarded by the {@code discussionService} resilience instances.
+ */
+@Component
+public class DiscussionClient {
+
+    @Autowired
+    private DownstreamWebClients downstreamWebClients;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    private WebClient webClient;
+
+    @PostConstruct
+    void init() {
+        webClient = downstreamWebClients.create("discussion", "http://DISCUSSION");
+    }
+
+    public Mono<CursorPage<PostDto>> getPostsPage(String cursor, int limit, String authHeader) {
+        return downstreamGuard.call(DownstreamGuard.DISCUSSION_SERVICE, webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/posts/page")
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                        .queryParam("limit", limit)
+                        .build())
+                .headers(authorization(authHeader))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<CursorPage<PostDto>>() {
+                }));
+    }
+
+    public Mono<List<PostDto>> getPostsByUserId(int userId, String authHeader) {
+        return downstreamGuard.call(DownstreamGuard.DISCUSSION_SERVICE, webClient.get()
+                .uri("/api/posts/userId/{userId}", userId)
+                .headers(authorization(authHeader))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<PostDto>>() {
+                }));
+    }
+
+    // NDJSON stream of every post, newest first, read with backpressure
+    public Flux<PostDto> streamAllPosts(String authHeader) {
+        return downstreamGuard.stream(DownstreamGuard.DISCUSSION_SERVICE, webClient.get()
+                .uri("/api/posts/all")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .headers(authorization(authHeader))
+                .retrieve()
+                .bodyToFlux(PostDto.class));
+    }
+}
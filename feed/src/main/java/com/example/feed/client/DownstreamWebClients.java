@@ -0,0 +1,124 @@
+package com.example.feed.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Builds the {@link WebClient} of one downstream service, with its own connection pool and timeouts.
+ * <p>
+ * Settings are read from {@code feed.clients.<name>.*} (see application.properties). Pool gauges and the pool
+ * acquisition timer are published by Reactor Netty as {@code reactor.netty.connection.provider.*} with
+ * {@code name=<name>}; request latency is recorded as {@code feed.client.requests}, tagged by client, method,
+ * uri template and status, which is {@code CANCELLED} for calls given up on before they were answered.
+ */
+@Slf4j
+@Component
+public class DownstreamWebClients {
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+
+    public WebClient create(String name, String baseUrl) {
+        String prefix = "feed.clients." + name + ".";
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+                .maxConnections(environment.getProperty(prefix + "max-connections", Integer.class, 100))
+                .pendingAcquireMaxCount(environment.getProperty(prefix + "pending-acquire-max-count", Integer.class, 1000))
+                .pendingAcquireTimeout(environment.getProperty(prefix + "pending-acquire-timeout", Duration.class, Duration.ofSeconds(2)))
+                .maxIdleTime(environment.getProperty(prefix + "max-idle-time", Duration.class, Duration.ofSeconds(30)))
+                .metrics(true)
+                .build();
+        connectionProviders.add(connectionProvider);
+
+        Duration connectTimeout = environment.getProperty(prefix + "connect-timeout", Duration.class, Duration.ofSeconds(1));
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(environment.getProperty(prefix + "response-timeout", Duration.class, Duration.ofSeconds(3)));
+        if (environment.getProperty(prefix + "http2", Boolean.class, false)) {
+            // Cleartext HTTP/2 where the server accepts the upgrade, HTTP/1.1 otherwise
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        log.info("Created pooled client {} for {}", name, baseUrl);
+        // Cloned so each client gets its own connector; the clone keeps the load-balancer filter
+        return webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(timed(name))
+                .build();
+    }
+
+    private ExchangeFilterFunction timed(String name) {
+        return (request, next) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            // Calls given up on by a time limiter or circuit breaker end in a cancel, and a cancel can also follow
+            // the response; whichever signal comes first is recorded
+            AtomicBoolean stopped = new AtomicBoolean();
+            Consumer<String> stop = status -> {
+                if (stopped.compareAndSet(false, true)) {
+                    stop(sample, name, request, status);
+                }
+            };
+            return next.exchange(request)
+                    .doOnSuccess(response -> stop.accept(
+                            response == null ? "NONE" : String.valueOf(response.statusCode().value())))
+                    .doOnError(e -> stop.accept(e.getClass().getSimpleName()))
+                    .doOnCancel(() -> stop.accept("CANCELLED"));
+        };
+    }
+
+    private void stop(Timer.Sample sample, String name, ClientRequest request, String status) {
+        // The uri template keeps ids and names out of the tag values
+        String uri = request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                .map(Object::toString)
+                .orElse(request.url().getPath());
+        sample.stop(Timer.builder("feed.client.requests")
+                .description("Latency of calls to downstream services")
+                .tag("client", name)
+                .tag("method", request.method().name())
+                .tag("uri", uri)
+                .tag("status", status)
+                .register(meterRegistry));
+    }
+
+    static Consumer<HttpHeaders> authorization(String authHeader) {
+        return headers -> {
+            if (authHeader != null) {
+                headers.set(HttpHeaders.AUTHORIZATION, authHeader);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.feed.client;
+
+import com.example.feed.data.User;
+import com.example.feed.service.DownstreamGuard;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.example.feed.client.DownstreamWebClients.authorization;
+
+/**
+ * Calls to USERSSERVICE, guarded by the {@code usersService} resilience instances.
+ */
+@Component
+public class UsersClient {
+
+    @Autowired
+    private DownstreamWebClients downstreamWebClients;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    private WebClient webClient;
+
+    @PostConstruct
+    void init() {
+        webClient = downstreamWebClients.create("users", "http://USERSSERVICE");
+    }
+
+    public Mono<User> findByUserName(String userName, String authHeader) {
+        return downstreamGuard.call(DownstreamGuard.USERS_SERVICE, webClient.get()
+                .uri("/api/users/name/{userName}", userName)
+                .headers(authorization(authHeader))
+                .retrieve()
+                .bodyToMono(User.class));
+    }
+
+    /**
+     * Profiles for {@code ids} in one request, keyed by id; unknown ids are absent.
+     */
+    public Mono<Map<Integer, User>> findByIds(Collection<Integer> ids, String authHeader) {
+        return downstreamGuard.call(DownstreamGuard.USERS_SERVICE, webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/users/batch").queryParam("ids", ids).build())
+                .headers(authorization(authHeader))
+                .retrieve()
+                .bodyToFlux(User.class)
+                .collectMap(User::getId));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.feed.config;
 
+import com.example.feed.service.DownstreamGuard;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.springframework.boot.actuate.health.Health;
@@ -10,13 +11,15 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class HealthIndicatorConfig {
 
+    // The feed keeps serving (snapshot or placeholder authors) while a downstream breaker is open, so it stays UP
     @Bean
     public HealthIndicator feedServiceHealthIndicator(CircuitBreakerRegistry circuitBreakerRegistry) {
-        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("feedService");
-        return () -> {
-            CircuitBreaker.State state = circuitBreaker.getState();
-            return Health.up().withDetail("state", state).build();
-        };
+        CircuitBreaker usersService = circuitBreakerRegistry.circuitBreaker(DownstreamGuard.USERS_SERVICE);
+        CircuitBreaker discussionService = circuitBreakerRegistry.circuitBreaker(DownstreamGuard.DISCUSSION_SERVICE);
+        return () -> Health.up()
+                .withDetail(DownstreamGuard.USERS_SERVICE, usersService.getState())
+                .withDetail(DownstreamGuard.DISCUSSION_SERVICE, discussionService.getState())
+                .build();
     }
 
     @Bean
@@ -1,13 +0,0 @@
-package com.example.feed.config;
-
-import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class Resilience4jConfig {
-    @Bean
-    public CircuitBreakerRegistry circuitBreakerRegistry() {
-        return CircuitBreakerRegistry.ofDefaults();
-    }
-}
@@ -1,21 +1,34 @@
 package com.example.feed.controller;
 
 import com.example.feed.data.FeedDto;
+import com.example.feed.service.Cursors;
 import com.example.feed.service.FeedService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
 @RequestMapping("/feed")
 public class FeedController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SNAPSHOT_AGE_HEADER = "X-Feed-Snapshot-Age";
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     WebClient.Builder webClientBuilder;
 
@@ -25,18 +38,55 @@ public class FeedController {
     @Autowired
     private FeedService feedService;
 
+    // The body stays a plain array for existing clients; the cursor for the next page travels in a header
     @GetMapping("/all")
-    public ResponseEntity<List<FeedDto>> getFeed() {
-        return ResponseEntity.ok(feedService.getFeed());
+    public Mono<ResponseEntity<List<FeedDto>>> getFeed(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE || !isValidCursor(cursor)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return feedService.getFeed(cursor, limit, authHeader)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    if (page.getAsOf() != null) {
+                        // Seconds since the served snapshot was built
+                        response.header(SNAPSHOT_AGE_HEADER,
+                                String.valueOf(Duration.between(page.getAsOf(), Instant.now()).toSeconds()));
+                    }
+                    return response.body(page.getItems());
+                });
+    }
+
+    // Whole feed as NDJSON, one entry per line, written as posts arrive from the discussion service
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<FeedDto> streamFeed(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        return feedService.streamFeed(authHeader);
     }
 
     @GetMapping("/user/{userName}")
-    public ResponseEntity<List<FeedDto>> getPostsOfUserByName(@PathVariable("userName") String userName) {
-        return ResponseEntity.ok(feedService.getPostsOfUserByName(userName));
+    public Mono<ResponseEntity<List<FeedDto>>> getPostsOfUserByName(
+            @PathVariable("userName") String userName,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        return feedService.getPostsOfUserByName(userName, authHeader).map(ResponseEntity::ok);
     }
 
     @GetMapping("/hello")
     public String hello() {
         return "Hello";
     }
+
+    private static boolean isValidCursor(String cursor) {
+        try {
+            Cursors.decodeId(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package com.example.feed.data;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // opaque cursor issued by the discussion service, null on the last page
+    private Instant asOf; // when the page was built, if it is served from a snapshot rather than live
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+}
@@ -15,6 +15,11 @@ public class PostDto {
     private Long id;
     private String content;
     private Integer likes;
-    private List<CommentDto> comments;
+    private List<CommentDto> comments; // The first comments of the post, see commentCount for the total
     private Integer userId;
+    private Integer commentCount;
+
+    public PostDto(Long id, String content, Integer likes, List<CommentDto> comments, Integer userId) {
+        this(id, content, likes, comments, userId, null);
+    }
 }
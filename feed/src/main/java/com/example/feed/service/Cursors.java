@@ -0,0 +1,33 @@
+package com.example.feed.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Reads and writes post cursors in the same format the discussion service issues them (base64url of the post id),
+ * so pages served from the timeline and pages pulled from the discussion service can be mixed freely.
+ */
+public final class Cursors {
+
+    private Cursors() {
+    }
+
+    public static String encodeId(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the post id the cursor points past, or null for a missing cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static Long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.feed.service;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wraps calls to one downstream service in that service's bulkhead, time limiter and circuit breaker, configured
+ * under {@code resilience4j.*.instances.<name>}. Each downstream fails independently of the other.
+ */
+@Component
+public class DownstreamGuard {
+    public static final String USERS_SERVICE = "usersService";
+    public static final String DISCUSSION_SERVICE = "discussionService";
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private TimeLimiterRegistry timeLimiterRegistry;
+
+    // Same nesting as the resilience4j annotations: the breaker records timeouts and bulkhead rejections
+    public <T> Mono<T> call(String downstream, Mono<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(downstream)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter(downstream)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(downstream)));
+    }
+
+    // Streams only go through the breaker; a bulkhead permit or a total timeout would be held for the whole stream
+    public <T> Flux<T> stream(String downstream, Flux<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(downstream)));
+    }
+}
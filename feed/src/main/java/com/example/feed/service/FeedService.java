@@ -1,11 +1,19 @@
 package com.example.feed.service;
 
+import com.example.feed.data.CursorPage;
 import com.example.feed.data.FeedDto;
+import com.example.feed.timeline.TimelineBatch;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface FeedService {
-    List<FeedDto> getFeed();
+    Mono<CursorPage<FeedDto>> getFeed(String cursor, int limit, String authHeader);
 
-    List<FeedDto> getPostsOfUserByName(String userName);
+    Flux<FeedDto> streamFeed(String authHeader);
+
+    Mono<List<FeedDto>> getPostsOfUserByName(String userName, String authHeader);
+
+    Mono<Void> applyTimelineBatch(TimelineBatch batch);
 }
@@ -1,137 +1,257 @@
 package com.example.feed.service;
 
+import com.example.feed.cache.AuthorCache;
+import com.example.feed.cache.FeedSnapshot;
+import com.example.feed.cache.SingleFlight;
+import com.example.feed.client.DiscussionClient;
+import com.example.feed.client.UsersClient;
+import com.example.feed.data.CursorPage;
 import com.example.feed.data.FeedDto;
 import com.example.feed.data.PostDto;
 import com.example.feed.data.User;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.feed.timeline.TimelineBatch;
+import com.example.feed.timeline.TimelineEvent;
+import com.example.feed.timeline.TimelineStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FeedServiceImpl implements FeedService {
-    private static final String FEED_SERVICE = "feedService";
+    private static final String UNKNOWN_AUTHOR = "Unknown author";
+    // Posts arriving on a stream are grouped so their authors are resolved with one batch lookup
+    private static final int STREAM_AUTHOR_BATCH = 100;
+    private static final Duration STREAM_AUTHOR_BATCH_WAIT = Duration.ofMillis(50);
 
     @Autowired
-    private WebClient.Builder webClientBuilder;
+    private UsersClient usersClient;
 
     @Autowired
-    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private DiscussionClient discussionClient;
 
     @Autowired
-    private HttpServletRequest request;
+    private AuthorCache authorCache;
 
-    public void logCircuitBreakerState() {
-        System.out.println("Circuit breaker state: " + circuitBreakerRegistry.circuitBreaker(FEED_SERVICE).getState());
+    @Autowired
+    private TimelineStore timelineStore;
+
+    @Autowired
+    private FeedSnapshot feedSnapshot;
+
+    @Autowired
+    private SingleFlight<String, CursorPage<FeedDto>> feedPageLoads;
+
+    /**
+     * Posts with their authors, and whether some authors are placeholders because the users service failed and
+     * they were not cached.
+     */
+    private record Authors(Map<Integer, User> users, boolean degraded) {
     }
 
     @Override
-    @CircuitBreaker(name = FEED_SERVICE, fallbackMethod = "getFeedFallback")
-    public List<FeedDto> getFeed() {
-        try {
-            log.info("feedService - getFeed");
-            String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-
-            List<User> users = webClientBuilder.build().get()
-                    .uri("http://USERSSERVICE/api/users/all")
-                    .header(HttpHeaders.AUTHORIZATION, authHeader)
-                    .retrieve()
-                    // .onStatus(HttpStatusCode::is5xxServerError, response -> Mono.error(new
-                    // RuntimeException("Failed to retrieve users---")))
-                    .bodyToMono(new ParameterizedTypeReference<List<User>>() {
-                    })
-                    .block();
-
-            List<PostDto> posts = webClientBuilder.build().get()
-                    .uri("http://DISCUSSION/api/posts/all")
-                    .header(HttpHeaders.AUTHORIZATION, authHeader)
-                    .retrieve()
-                    // .onStatus(HttpStatusCode::is5xxServerError, response -> Mono.error(new
-                    // RuntimeException("Failed to retrieve posts---")))
-                    .bodyToMono(new ParameterizedTypeReference<List<PostDto>>() {
-                    })
-                    .block();
-
-            if (users == null || posts == null) {
-                log.error("Failed to retrieve users or posts. users={}, posts={}", users, posts);
-                throw new RuntimeException("Failed to retrieve users or posts.");
-            }
-            Map<Integer, User> userMap = users.stream().collect(Collectors.toMap(User::getId, user -> user));
-
-            return posts.stream()
-                    .map(post -> {
-                        Integer postUserId = post.getUserId();
-                        if (postUserId == null) {
-                            log.error("Post with null userId: {}", post);
-                            return null; // skip this post
-                        }
-                        User user = userMap.get(postUserId);
-                        if (user == null) {
-                            log.error("No user found for userId: {} in post {}", postUserId, post);
-                            return null; // skip this post
-                        }
-                        return new FeedDto(user.getProfileName(), post, user.getId());
-                    })
-                    .filter(Objects::nonNull)
-                    .toList();
-        } catch (Exception e) {
-            log.error("Error in getFeed method", e.getCause());
-            System.out.println("Error in getFeed method" + e.getCause() + e.getClass());
-            throw e; // Rethrow exception to trigger fallback
+    public Mono<CursorPage<FeedDto>> getFeed(String cursor, int limit, String authHeader) {
+        log.info("feedService - getFeed");
+        // Deferred so that failures while assembling the requests also reach the fallback. Users service failures
+        // are absorbed by the author lookup, so only a failing discussion service ends up here.
+        return Mono.defer(() -> timelineStore.page(cursor, limit)
+                        .map(Mono::just)
+                        .orElseGet(() -> cursor == null
+                                ? getFirstPage(limit, authHeader)
+                                : loadFeed(cursor, limit, authHeader)))
+                .doOnError(e -> log.error("Error in getFeed method", e))
+                .onErrorResume(e -> getFeedFallback(cursor, limit, authHeader, e));
+    }
+
+    // Stale-while-revalidate: a recent enough snapshot is answered immediately and refreshed in the background
+    private Mono<CursorPage<FeedDto>> getFirstPage(int limit, String authHeader) {
+        Optional<FeedSnapshot.Entry> snapshot = feedSnapshot.latest()
+                .filter(entry -> entry.covers(limit) && feedSnapshot.isServableStale(entry));
+        if (snapshot.isEmpty()) {
+            return loadFeed(null, limit, authHeader);
         }
+        if (!feedSnapshot.isFresh(snapshot.get())) {
+            refreshInBackground(Math.max(limit, snapshot.get().page().getItems().size()), authHeader);
+        }
+        return Mono.just(snapshot.get().firstPage(limit));
+    }
+
+    private void refreshInBackground(int limit, String authHeader) {
+        if (!feedSnapshot.tryBeginRefresh()) {
+            return;
+        }
+        log.info("Serving stale feed snapshot, refreshing in the background");
+        loadFeed(null, limit, authHeader)
+                .doFinally(signal -> feedSnapshot.endRefresh())
+                .subscribe(page -> log.debug("Feed snapshot refreshed"),
+                        e -> log.warn("Background feed refresh failed", e));
+    }
+
+    // Identical concurrent loads are coalesced. The feed is the same for every caller, so the key is just the page
+    // and the leader's Authorization header is used for the shared downstream calls.
+    private Mono<CursorPage<FeedDto>> loadFeed(String cursor, int limit, String authHeader) {
+        String key = (cursor == null ? "" : cursor) + "|" + limit;
+        return feedPageLoads.execute(key, () -> pullFeed(cursor, limit, authHeader));
+    }
+
+    // Builds a page from the discussion and users services when the timeline does not cover it.
+    // Authors can only be looked up once the page is known; they are then fetched concurrently.
+    private Mono<CursorPage<FeedDto>> pullFeed(String cursor, int limit, String authHeader) {
+        return fetchPostsPage(cursor, limit, authHeader)
+                .flatMap(page -> fetchAuthors(authorIdsOf(page.getItems()), authHeader)
+                        .map(authors -> {
+                            CursorPage<FeedDto> feed = new CursorPage<>(
+                                    joinWithAuthors(page.getItems(), authors.users()), page.getNextCursor());
+                            // Pages with placeholder authors are served but not kept, so they don't outlive the outage
+                            if (!authors.degraded()) {
+                                timelineStore.seed(cursor, feed);
+                                if (cursor == null) {
+                                    feedSnapshot.record(feed);
+                                }
+                            }
+                            return feed;
+                        }));
     }
 
-    // Fallback method for getFeed
-    public List<FeedDto> getFeedFallback(Throwable t) {
+    // Fallback for getFeed when the discussion service fails: the last good first page however old it is. Other pages
+    // and a first page without a snapshot fail with 503, as an empty page would read as the end of the feed
+    private Mono<CursorPage<FeedDto>> getFeedFallback(String cursor, int limit, String authHeader, Throwable t) {
         log.error("Failed to fetch feed, invoking fallback method", t);
-        List<FeedDto> feedDtos = new ArrayList<>();
-        PostDto postDto = new PostDto(1L, "Fallback post content", 0, null, 1);
-        feedDtos.add(new FeedDto("Fall Back Sample", postDto, 1));
-        feedDtos.add(new FeedDto("Fall Back Sample", postDto, 1));
-        feedDtos.add(new FeedDto("Fall Back Sample", postDto, 1));
+        if (cursor == null) {
+            Optional<FeedSnapshot.Entry> snapshot = feedSnapshot.latest();
+            if (snapshot.isPresent()) {
+                log.warn("Serving feed snapshot taken {} ago", feedSnapshot.ageOf(snapshot.get()));
+                return Mono.just(snapshot.get().firstPage(limit));
+            }
+        }
+        return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Feed is unavailable", t));
+    }
 
-        return feedDtos;
+    @Override
+    public Flux<FeedDto> streamFeed(String authHeader) {
+        log.info("feedService - streamFeed");
+        // Reads discussion's NDJSON stream with backpressure and emits each batch as soon as its authors are known.
+        // With fair backpressure bufferTimeout only requests posts for batches concatMap has asked for, so a slow
+        // subscriber holds back the stream a few batches ahead, and a batch cut short by the wait does not leave
+        // requested posts arriving with no demand for them (an overflow error without it)
+        return discussionClient.streamAllPosts(authHeader)
+                .bufferTimeout(STREAM_AUTHOR_BATCH, STREAM_AUTHOR_BATCH_WAIT, true)
+                .concatMap(batch -> fetchAuthors(authorIdsOf(batch), authHeader)
+                        .flatMapIterable(authors -> joinWithAuthors(batch, authors.users())), 1)
+                .doOnError(e -> log.error("Error in streamFeed method", e));
     }
 
+    // Events are applied in sequence order; the batch counts as applied only once all of them are, so a failed
+    // delivery is sent again and picks up from the first event not yet applied. The authors of all created posts
+    // are resolved with one lookup, however many posts a bulk import put into the batch
     @Override
-    public List<FeedDto> getPostsOfUserByName(String userName) {
-        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-
-        User user = webClientBuilder.build().get()
-                .uri("http://USERSSERVICE/api/users/name/" + userName)
-                .header(HttpHeaders.AUTHORIZATION, authHeader)
-                .retrieve()
-                .bodyToMono(User.class)
-                .block();
-
-        if (user == null) {
-            throw new RuntimeException("User not found: " + userName);
-        }
-        List<PostDto> posts = webClientBuilder.build().get()
-                .uri("http://DISCUSSION/api/posts/userId/" + user.getId())
-                .header(HttpHeaders.AUTHORIZATION, authHeader)
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<PostDto>>() {
-                })
-                .block();
+    public Mono<Void> applyTimelineBatch(TimelineBatch batch) {
+        return Mono.defer(() -> {
+            long applied = timelineStore.beginBatch(batch.getAfter());
+            List<TimelineEvent> events = batch.getEvents().stream()
+                    .filter(event -> event.getSequence() > applied)
+                    .toList();
+            List<PostDto> created = events.stream()
+                    .filter(event -> event.getType() == TimelineEvent.Type.CREATED)
+                    .map(TimelineEvent::getPost)
+                    .toList();
+            Mono<Authors> authors = created.isEmpty()
+                    ? Mono.just(new Authors(Map.of(), false))
+                    : fetchAuthors(authorIdsOf(created), null);
+            return authors
+                    .doOnNext(resolved -> events.forEach(event -> applyTimelineEvent(event, resolved)))
+                    .then(Mono.fromRunnable(() -> timelineStore.endBatch(batch.getUpTo())));
+        });
+    }
 
-        if (posts == null) {
-            throw new RuntimeException("Posts not found for user: " + userName);
+    private void applyTimelineEvent(TimelineEvent event, Authors authors) {
+        switch (event.getType()) {
+            case CREATED:
+                if (authors.degraded()) {
+                    // Leave it to be pulled with its real author once the users service is back
+                    timelineStore.markGap(event.getPostId());
+                } else {
+                    joinWithAuthors(List.of(event.getPost()), authors.users()).forEach(timelineStore::add);
+                }
+                break;
+            case UPDATED:
+                timelineStore.update(event.getPost());
+                break;
+            case DELETED:
+                timelineStore.remove(event.getPostId());
+                break;
+            default:
+                break;
         }
+    }
+
+    @Override
+    public Mono<List<FeedDto>> getPostsOfUserByName(String userName, String authHeader) {
+        return usersClient.findByUserName(userName, authHeader)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found: " + userName)))
+                .flatMap(author -> discussionClient.getPostsByUserId(author.getId(), authHeader)
+                        .switchIfEmpty(Mono.error(() -> new RuntimeException("Posts not found for user: " + userName)))
+                        .map(posts -> posts.stream()
+                                .map(post -> new FeedDto(author.getProfileName(), post, author.getId()))
+                                .collect(Collectors.toList())));
+    }
+
+    private Mono<CursorPage<PostDto>> fetchPostsPage(String cursor, int limit, String authHeader) {
+        return discussionClient.getPostsPage(cursor, limit, authHeader)
+                .filter(posts -> posts.getItems() != null)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Failed to retrieve posts.")));
+    }
+
+    // Never fails: if the users service is unavailable, cached authors are used and the rest get a placeholder
+    private Mono<Authors> fetchAuthors(Collection<Integer> authorIds, String authHeader) {
+        return authorCache.getAll(authorIds, missing -> usersClient.findByIds(missing, authHeader))
+                .map(users -> new Authors(users, false))
+                .onErrorResume(e -> {
+                    log.warn("Users service unavailable, using cached or placeholder authors: {}", e.toString());
+                    Map<Integer, User> users = new HashMap<>(authorCache.getAllPresent(authorIds));
+                    boolean degraded = users.size() < authorIds.size();
+                    authorIds.forEach(id -> users.computeIfAbsent(id, missing -> new User(missing, null, UNKNOWN_AUTHOR)));
+                    return Mono.just(new Authors(users, degraded));
+                });
+    }
+
+    private static Set<Integer> authorIdsOf(List<PostDto> posts) {
         return posts.stream()
-                .map(post -> new FeedDto(user.getProfileName(), post, user.getId()))
-                .collect(Collectors.toList());
+                .map(PostDto::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static List<FeedDto> joinWithAuthors(List<PostDto> posts, Map<Integer, User> userMap) {
+        return posts.stream()
+                .map(post -> {
+                    Integer postUserId = post.getUserId();
+                    if (postUserId == null) {
+                        log.error("Post with null userId: {}", post);
+                        return null; // skip this post
+                    }
+                    User user = userMap.get(postUserId);
+                    if (user == null) {
+                        log.error("No user found for userId: {} in post {}", postUserId, post);
+                        return null; // skip this post
+                    }
+                    return new FeedDto(user.getProfileName(), post, user.getId());
+                })
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
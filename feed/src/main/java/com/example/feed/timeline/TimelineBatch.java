@@ -0,0 +1,23 @@
+package com.example.feed.timeline;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Post events pushed by the discussion service from its outbox, in sequence order. {@code after} is the last
+ * sequence the previous batch reached, so a batch that does not continue from what the store has applied reveals
+ * that events were missed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TimelineBatch {
+    private long after;
+    private long upTo;
+    private List<TimelineEvent> events;
+}
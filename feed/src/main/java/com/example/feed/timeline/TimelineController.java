@@ -0,0 +1,32 @@
+package com.example.feed.timeline;
+
+import com.example.feed.service.FeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Receives batches of post change events pushed by the discussion service. Not routed through the API gateway's /feed/** route.
+ */
+@RestController
+@RequestMapping("/internal/timeline")
+public class TimelineController {
+
+    @Autowired
+    private FeedService feedService;
+
+    @PostMapping("/events")
+    public Mono<ResponseEntity<Void>> onEvents(@RequestBody TimelineBatch batch) {
+        if (batch.getEvents() == null || batch.getUpTo() < batch.getAfter()
+                || batch.getEvents().stream().anyMatch(event -> event.getType() == null || event.getPostId() == null
+                || (event.getType() != TimelineEvent.Type.DELETED && event.getPost() == null))) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return feedService.applyTimelineBatch(batch)
+                .thenReturn(ResponseEntity.accepted().<Void>build());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.feed.timeline;
+
+import com.example.feed.data.PostDto;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TimelineEvent {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private long sequence;
+    private Type type;
+    private Long postId;
+    // The discussion outbox sends the changed post as "data"
+    @JsonAlias("data")
+    private PostDto post; // null for DELETED
+}
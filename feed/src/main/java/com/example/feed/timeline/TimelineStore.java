@@ -0,0 +1,185 @@
+package com.example.feed.timeline;
+
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.FeedDto;
+import com.example.feed.data.PostDto;
+import com.example.feed.service.Cursors;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Materialized, newest-first feed timeline kept up to date by post events from the discussion service.
+ * <p>
+ * The store only answers for the id range it is known to hold completely (see {@link Coverage}). Ranges outside of
+ * it are read from the discussion service and {@link #seed seeded} back, which extends the covered range.
+ * <p>
+ * Events arrive in batches numbered by the discussion outbox. A batch that does not continue from the last one applied
+ * (events lost, or this instance restarted or missed batches delivered to another instance) clears the store, which
+ * then refills from reads; entries are never served across a hole in the event stream.
+ */
+@Slf4j
+@Component
+public class TimelineStore {
+    private static final Coverage EMPTY = new Coverage(Long.MAX_VALUE, false);
+
+    /**
+     * Every post with an id at or above {@code floor} is present; {@code complete} means the range reaches the
+     * oldest post. Held as one immutable value so readers never see a floor and flag from different updates.
+     */
+    private record Coverage(long floor, boolean complete) {
+    }
+
+    private final NavigableMap<Long, FeedDto> entries = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    // Posts deleted recently, so a page pulled before the delete cannot resurrect them when it is seeded
+    private final Cache<Long, Boolean> recentlyDeleted = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(10_000)
+            .build();
+    // Latest version of posts updated recently, so a page pulled before the update cannot bring back the old one
+    private final Cache<Long, PostDto> recentlyUpdated = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(10_000)
+            .build();
+    private final int capacity;
+
+    private volatile Coverage coverage = EMPTY;
+    // Last outbox sequence applied; -1 until the first batch
+    private long position = -1;
+
+    public TimelineStore(@Value("${feed.timeline.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Range scan for the page after {@code cursor}, or empty when the store does not cover that range.
+     */
+    public Optional<CursorPage<FeedDto>> page(String cursor, int limit) {
+        Long beforeId = Cursors.decodeId(cursor);
+        Coverage covered = coverage;
+        if (covered == EMPTY) {
+            return Optional.empty();
+        }
+        Map<Long, FeedDto> range = beforeId == null ? entries : entries.tailMap(beforeId, false);
+        List<FeedDto> items = new ArrayList<>(limit);
+        boolean more = false;
+        for (Map.Entry<Long, FeedDto> entry : range.entrySet()) {
+            if (entry.getKey() < covered.floor()) {
+                break;
+            }
+            if (items.size() == limit) {
+                more = true;
+                break;
+            }
+            items.add(entry.getValue());
+        }
+        if (items.size() < limit && !covered.complete()) {
+            return Optional.empty();
+        }
+        boolean hasMore = more || !covered.complete();
+        String nextCursor = hasMore && !items.isEmpty()
+                ? Cursors.encodeId(items.get(items.size() - 1).getPost().getId())
+                : null;
+        return Optional.of(new CursorPage<>(items, nextCursor));
+    }
+
+    /**
+     * Stores a page that was read from the discussion service for {@code cursor}. Keyset pages are contiguous, so the
+     * covered range grows whenever the page starts inside it or at the top of the timeline.
+     */
+    public synchronized void seed(String cursor, CursorPage<FeedDto> page) {
+        Long beforeId = Cursors.decodeId(cursor);
+        for (FeedDto entry : page.getItems()) {
+            Long id = entry.getPost().getId();
+            if (recentlyDeleted.getIfPresent(id) == null) {
+                PostDto updated = recentlyUpdated.getIfPresent(id);
+                entries.putIfAbsent(id, updated == null
+                        ? entry
+                        : new FeedDto(entry.getProfileName(), updated, entry.getUserId()));
+            }
+        }
+        Coverage covered = coverage;
+        if (beforeId == null || beforeId >= covered.floor()) {
+            coverage = page.getNextCursor() == null
+                    ? new Coverage(Long.MIN_VALUE, true)
+                    : new Coverage(Math.min(covered.floor(), Cursors.decodeId(page.getNextCursor())), false);
+        }
+        trim();
+    }
+
+    /**
+     * Starts applying a batch that continues from sequence {@code after}, and returns the sequence its events must be
+     * newer than: events up to it were already applied by an earlier delivery of the same batch.
+     */
+    public synchronized long beginBatch(long after) {
+        if (after > position) {
+            if (position >= 0) {
+                log.warn("Timeline events {} to {} were missed, clearing the timeline", position + 1, after);
+            }
+            entries.clear();
+            coverage = EMPTY;
+            position = after;
+        }
+        return position;
+    }
+
+    public synchronized void endBatch(long upTo) {
+        position = Math.max(position, upTo);
+    }
+
+    public synchronized void add(FeedDto entry) {
+        entries.put(entry.getPost().getId(), entry);
+        trim();
+    }
+
+    public synchronized void update(PostDto post) {
+        recentlyUpdated.put(post.getId(), post);
+        entries.computeIfPresent(post.getId(),
+                (id, existing) -> new FeedDto(existing.getProfileName(), post, existing.getUserId()));
+    }
+
+    public void remove(Long postId) {
+        recentlyDeleted.put(postId, Boolean.TRUE);
+        entries.remove(postId);
+    }
+
+    /**
+     * Cuts the covered range off above a post that could not be stored, so reads reaching it go to the discussion
+     * service and a later seed can fill the gap.
+     */
+    public synchronized void markGap(Long postId) {
+        Coverage covered = coverage;
+        if (covered != EMPTY) {
+            coverage = new Coverage(Math.max(covered.floor(), postId + 1), false);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Evict the oldest entries beyond capacity; the store then no longer reaches the oldest post
+    private void trim() {
+        while (entries.size() > capacity) {
+            Map.Entry<Long, FeedDto> oldest = entries.pollLastEntry();
+            if (oldest == null) {
+                break;
+            }
+            Coverage covered = coverage;
+            if (covered != EMPTY) {
+                coverage = new Coverage(Math.max(covered.floor(), oldest.getKey() + 1), false);
+            }
+        }
+    }
+}
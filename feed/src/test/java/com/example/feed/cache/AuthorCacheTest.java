@@ -0,0 +1,66 @@
+package com.example.feed.cache;
+
+import com.example.feed.data.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuthorCacheTest {
+
+    private AuthorCache authorCache;
+    private List<Set<Integer>> loads;
+    private Function<Set<Integer>, Mono<Map<Integer, User>>> loader;
+
+    @BeforeEach
+    void setUp() {
+        authorCache = new AuthorCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        loads = new ArrayList<>();
+        loader = ids -> {
+            loads.add(ids);
+            return Mono.just(ids.stream()
+                    .filter(id -> id != 404)
+                    .collect(Collectors.toMap(id -> id, id -> new User(id, "user" + id, "Profile " + id))));
+        };
+    }
+
+    @Test
+    void loadsOnlyMissingIds() {
+        authorCache.getAll(Set.of(1, 2), loader).block();
+        Map<Integer, User> users = authorCache.getAll(Set.of(1, 2, 3), loader).block();
+
+        assertEquals(3, users.size());
+        assertEquals(List.of(Set.of(1, 2), Set.of(3)), loads);
+    }
+
+    @Test
+    void unknownIdsAreNotCached() {
+        Map<Integer, User> users = authorCache.getAll(Set.of(1, 404), loader).block();
+        authorCache.getAll(Set.of(404), loader).block();
+
+        assertFalse(users.containsKey(404));
+        assertEquals(List.of(Set.of(1, 404), Set.of(404)), loads);
+    }
+
+    @Test
+    void failedLoadsLeaveCachedAuthorsAvailable() {
+        authorCache.getAll(Set.of(1), loader).block();
+        Mono<Map<Integer, User>> failing = authorCache.getAll(Set.of(1, 2),
+                ids -> Mono.error(new IllegalStateException("users service down")));
+
+        assertThrows(IllegalStateException.class, failing::block);
+        assertEquals(Set.of(1), authorCache.getAllPresent(Set.of(1, 2)).keySet());
+    }
+}
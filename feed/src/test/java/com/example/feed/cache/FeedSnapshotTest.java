@@ -0,0 +1,102 @@
+package com.example.feed.cache;
+
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.FeedDto;
+import com.example.feed.data.PostDto;
+import com.example.feed.service.Cursors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedSnapshotTest {
+
+    private Instant now;
+    private FeedSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2024-01-01T00:00:00Z");
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        snapshot = new FeedSnapshot(Duration.ofSeconds(2), Duration.ofSeconds(30), clock);
+    }
+
+    @Test
+    void tracksFreshnessByAge() {
+        snapshot.record(new CursorPage<>(entries(5, 1), null));
+        FeedSnapshot.Entry entry = snapshot.latest().orElseThrow();
+        assertTrue(snapshot.isFresh(entry));
+
+        now = now.plusSeconds(10);
+        assertFalse(snapshot.isFresh(entry));
+        assertTrue(snapshot.isServableStale(entry));
+        assertEquals(Duration.ofSeconds(10), snapshot.ageOf(entry));
+
+        now = now.plusSeconds(30);
+        assertFalse(snapshot.isServableStale(entry));
+    }
+
+    @Test
+    void servesSmallerPagesWithCursorAndTimestamp() {
+        snapshot.record(new CursorPage<>(entries(10, 1), null));
+        FeedSnapshot.Entry entry = snapshot.latest().orElseThrow();
+
+        CursorPage<FeedDto> page = entry.firstPage(3);
+
+        assertEquals(List.of(10L, 9L, 8L), page.getItems().stream().map(item -> item.getPost().getId()).toList());
+        assertEquals(Cursors.encodeId(8), page.getNextCursor());
+        assertEquals(now, page.getAsOf());
+        assertNull(entry.firstPage(20).getNextCursor());
+    }
+
+    @Test
+    void doesNotCoverLargerPagesThanItHolds() {
+        snapshot.record(new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        FeedSnapshot.Entry entry = snapshot.latest().orElseThrow();
+
+        assertTrue(entry.covers(5));
+        assertFalse(entry.covers(6));
+    }
+
+    @Test
+    void allowsOneRefreshAtATime() {
+        assertTrue(snapshot.tryBeginRefresh());
+        assertFalse(snapshot.tryBeginRefresh());
+
+        snapshot.endRefresh();
+        assertTrue(snapshot.tryBeginRefresh());
+    }
+
+    private static List<FeedDto> entries(long newest, long oldest) {
+        return LongStream.rangeClosed(oldest, newest)
+                .map(id -> newest + oldest - id)
+                .mapToObj(id -> new FeedDto("Profile", new PostDto(id, "post " + id, 0, null, 1), 1))
+                .toList();
+    }
+}
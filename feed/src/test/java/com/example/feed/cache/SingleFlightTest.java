@@ -0,0 +1,88 @@
+package com.example.feed.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> singleFlight;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test.loads", meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() {
+        Sinks.One<String> result = Sinks.one();
+        List<String> received = new ArrayList<>();
+
+        singleFlight.execute("page", () -> load(result.asMono())).subscribe(received::add);
+        singleFlight.execute("page", () -> load(result.asMono())).subscribe(received::add);
+        assertEquals(1, inFlight());
+        result.tryEmitValue("feed");
+
+        assertEquals(List.of("feed", "feed"), received);
+        assertEquals(1, loads.get());
+        assertEquals(1, calls("leader"));
+        assertEquals(1, calls("coalesced"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void differentKeysLoadSeparately() {
+        singleFlight.execute("a", () -> load(Mono.just("a"))).block();
+        singleFlight.execute("b", () -> load(Mono.just("b"))).block();
+
+        assertEquals(2, loads.get());
+        assertEquals(0, calls("coalesced"));
+    }
+
+    @Test
+    void finishedLoadsAreNotReused() {
+        singleFlight.execute("page", () -> load(Mono.just("old"))).block();
+
+        assertEquals("new", singleFlight.execute("page", () -> load(Mono.just("new"))).block());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void failuresAreSharedButNotRemembered() {
+        Sinks.One<String> result = Sinks.one();
+        List<Throwable> errors = new ArrayList<>();
+
+        singleFlight.execute("page", () -> load(result.asMono())).subscribe(value -> { }, errors::add);
+        singleFlight.execute("page", () -> load(result.asMono())).subscribe(value -> { }, errors::add);
+        result.tryEmitError(new IllegalStateException("down"));
+
+        assertEquals(2, errors.size());
+        assertEquals(1, loads.get());
+        assertEquals("up", singleFlight.execute("page", () -> load(Mono.just("up"))).block());
+    }
+
+    private Mono<String> load(Mono<String> value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    private double calls(String result) {
+        return meterRegistry.get("test.loads.calls").tag("result", result).counter().count();
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("test.loads.in-flight").gauge().value();
+    }
+}
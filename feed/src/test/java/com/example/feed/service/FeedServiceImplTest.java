@@ -1,17 +1,40 @@
 package com.example.feed.service;
 
+import com.example.feed.client.DiscussionClient;
+import com.example.feed.client.UsersClient;
 import com.example.feed.data.FeedDto;
+import com.example.feed.data.PostDto;
+import com.example.feed.data.User;
+import com.example.feed.timeline.TimelineBatch;
+import com.example.feed.timeline.TimelineEvent;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.reactivestreams.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -21,29 +44,83 @@ class FeedServiceImplTest {
     private FeedService feedService;
 
     @MockBean
-    private WebClient.Builder webClientBuilder;
+    private DiscussionClient discussionClient;
+
+    @MockBean
+    private UsersClient usersClient;
 
     @Test
     public void testGetFeedCircuitBreaker() {
-        // Mock WebClient to simulate post service failure
-        WebClient mockWebClient = Mockito.mock(WebClient.class);
-        WebClient.RequestHeadersUriSpec requestHeadersUriSpec = Mockito.mock(WebClient.RequestHeadersUriSpec.class);
-        WebClient.RequestHeadersSpec requestHeadersSpec = Mockito.mock(WebClient.RequestHeadersSpec.class);
-        WebClient.ResponseSpec responseSpec = Mockito.mock(WebClient.ResponseSpec.class);
-
-        Mockito.when(webClientBuilder.build()).thenReturn(mockWebClient);
-        Mockito.when(mockWebClient.get()).thenReturn(requestHeadersUriSpec);
-        Mockito.when(requestHeadersUriSpec.uri(Mockito.anyString())).thenReturn(requestHeadersSpec);
-        Mockito.when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        Mockito.when(responseSpec.bodyToMono(Mockito.any(ParameterizedTypeReference.class)))
+        // Mock the discussion client to simulate post service failure
+        Mockito.when(discussionClient.getPostsPage(Mockito.any(), Mockito.anyInt(), Mockito.any()))
                 .thenReturn(Mono.error(new RuntimeException("Simulated service failure")));
 
-        // Call the service method
-        List<FeedDto> result = feedService.getFeed();
+        // Without a snapshot to fall back on, neither the first nor a later page can be answered
+        ResponseStatusException first = assertThrows(ResponseStatusException.class,
+                () -> feedService.getFeed(null, 20, null).block());
+        ResponseStatusException later = assertThrows(ResponseStatusException.class,
+                () -> feedService.getFeed(Cursors.encodeId(100), 20, null).block());
 
-        // Verify that fallback method was invoked
-        assertTrue(result.isEmpty());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, first.getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, later.getStatusCode());
     }
-}
 
+    @Test
+    public void testTimelineBatchResolvesAuthorsOnce() {
+        Map<Integer, User> authors = IntStream.rangeClosed(1, 10).boxed()
+                .collect(Collectors.toMap(Function.identity(), id -> new User(id, "user" + id, "Profile " + id)));
+        Mockito.when(usersClient.findByIds(Mockito.any(), Mockito.any())).thenReturn(Mono.just(authors));
+        // A chunk of a bulk import: 1000 new posts by 10 authors
+        List<TimelineEvent> events = LongStream.rangeClosed(1, 1000)
+                .mapToObj(id -> new TimelineEvent(id, TimelineEvent.Type.CREATED, id,
+                        new PostDto(id, "post" + id, 0, null, (int) (id % 10) + 1)))
+                .toList();
+
+        feedService.applyTimelineBatch(new TimelineBatch(0, 1000, events)).block();
+
+        Mockito.verify(usersClient, Mockito.times(1)).findByIds(Mockito.any(), Mockito.any());
+    }
 
+    @Test
+    public void testStreamFeedWaitsForASlowSubscriber() throws InterruptedException {
+        // Slower than the batch wait, so batches are cut short while the subscriber has no demand left
+        Mockito.when(discussionClient.streamAllPosts(Mockito.any())).thenReturn(Flux.range(1, 300)
+                .map(id -> new PostDto((long) id, "post" + id, 0, null, 1))
+                .delayElements(Duration.ofMillis(5)));
+        Mockito.when(usersClient.findByIds(Mockito.any(), Mockito.any()))
+                .thenReturn(Mono.just(Map.of(1, new User(1, "user1", "Profile 1"))));
+        List<FeedDto> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        BaseSubscriber<FeedDto> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(FeedDto value) {
+                received.add(value);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+            }
+
+            @Override
+            protected void hookFinally(SignalType type) {
+                done.countDown();
+            }
+        };
+
+        feedService.streamFeed(null).subscribe(slowSubscriber);
+        Thread.sleep(500);
+        assertEquals(1, received.size());
+        slowSubscriber.request(Long.MAX_VALUE);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(300, received.size());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.feed.timeline;
+
+import com.example.feed.data.CursorPage;
+import com.example.feed.data.FeedDto;
+import com.example.feed.data.PostDto;
+import com.example.feed.service.Cursors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimelineStoreTest {
+
+    private TimelineStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TimelineStore(100);
+    }
+
+    @Test
+    void servesNothingUntilSeeded() {
+        store.add(entry(10));
+
+        assertTrue(store.page(null, 5).isEmpty());
+    }
+
+    @Test
+    void servesSeededRangeAndNewPosts() {
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        store.add(entry(11));
+
+        CursorPage<FeedDto> page = store.page(null, 3).orElseThrow();
+
+        assertEquals(List.of(11L, 10L, 9L), ids(page));
+        assertEquals(Cursors.encodeId(9), page.getNextCursor());
+    }
+
+    @Test
+    void fallsBackBelowTheCoveredFloor() {
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+
+        assertTrue(store.page(Cursors.encodeId(7), 3).isEmpty());
+    }
+
+    @Test
+    void contiguousSeedsExtendCoverageToTheOldestPost() {
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        store.seed(Cursors.encodeId(6), new CursorPage<>(entries(5, 1), null));
+
+        CursorPage<FeedDto> page = store.page(Cursors.encodeId(3), 5).orElseThrow();
+
+        assertEquals(List.of(2L, 1L), ids(page));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void deletedPostsAreNotResurrectedBySeeding() {
+        store.remove(8L);
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+
+        assertEquals(List.of(10L, 9L, 7L), ids(store.page(null, 3).orElseThrow()));
+    }
+
+    @Test
+    void updatesAreNotUndoneBySeedingAnOlderPage() {
+        store.update(new PostDto(8L, "edited", 0, null, 1));
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+
+        CursorPage<FeedDto> page = store.page(null, 5).orElseThrow();
+
+        assertEquals("edited", page.getItems().get(2).getPost().getContent());
+        assertEquals("Profile", page.getItems().get(2).getProfileName());
+    }
+
+    @Test
+    void gapsSendReadsPastThemDownstreamUntilReseeded() {
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        store.add(entry(12));
+        store.markGap(11L);
+
+        assertEquals(List.of(12L), ids(store.page(null, 1).orElseThrow()));
+        assertTrue(store.page(null, 3).isEmpty());
+
+        store.seed(null, new CursorPage<>(entries(12, 9), Cursors.encodeId(9)));
+        assertEquals(List.of(12L, 11L, 10L), ids(store.page(null, 3).orElseThrow()));
+    }
+
+    @Test
+    void aBatchThatDoesNotContinueTheLastOneClearsTheTimeline() {
+        assertEquals(0, store.beginBatch(0));
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        store.endBatch(5);
+
+        // Events 6 and 7 never arrived
+        assertEquals(7, store.beginBatch(7));
+
+        assertTrue(store.page(null, 3).isEmpty());
+    }
+
+    @Test
+    void aRedeliveredBatchSkipsTheEventsAlreadyApplied() {
+        store.beginBatch(0);
+        store.seed(null, new CursorPage<>(entries(10, 6), Cursors.encodeId(6)));
+        store.endBatch(5);
+
+        assertEquals(5, store.beginBatch(3));
+
+        assertEquals(List.of(10L, 9L, 8L), ids(store.page(null, 3).orElseThrow()));
+    }
+
+    @Test
+    void trimmingRaisesTheFloor() {
+        TimelineStore small = new TimelineStore(3);
+        small.seed(null, new CursorPage<>(entries(5, 1), null));
+
+        assertEquals(List.of(5L, 4L, 3L), ids(small.page(null, 3).orElseThrow()));
+        assertTrue(small.page(Cursors.encodeId(3), 3).isEmpty());
+    }
+
+    private static List<FeedDto> entries(long fromId, long toId) {
+        return LongStream.iterate(fromId, id -> id >= toId, id -> id - 1).mapToObj(TimelineStoreTest::entry).toList();
+    }
+
+    private static FeedDto entry(long id) {
+        return new FeedDto("Profile", new PostDto(id, "post" + id, 0, null, 1), 1);
+    }
+
+    private static List<Long> ids(CursorPage<FeedDto> page) {
+        return page.getItems().stream().map(item -> item.getPost().getId()).toList();
+    }
+}
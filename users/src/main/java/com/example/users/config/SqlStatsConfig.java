@@ -0,0 +1,60 @@
+package com.example.users.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+
+@Configuration
+public class SqlStatsConfig {
+    private static final String STARTED_AT = "sqlStats.startedAt";
+
+    /**
+     * Wraps the {@code dataSource} bean in a JDBC proxy that records every statement, its time and the rows read from
+     * its result set into the {@link SqlStats} of the current request.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (!(bean instanceof DataSource dataSource) || !"dataSource".equals(beanName)) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create("users", dataSource)
+                        .beforeQuery((execution, queries) -> execution.addCustomValue(STARTED_AT, System.nanoTime()))
+                        .afterQuery((execution, queries) -> {
+                            SqlStats stats = SqlStats.current();
+                            if (stats != null && !queries.isEmpty()) {
+                                long startedAt = execution.getCustomValue(STARTED_AT, Long.class);
+                                stats.recordStatement(queries.get(0).getQuery(), System.nanoTime() - startedAt);
+                            }
+                        })
+                        .proxyResultSet()
+                        .afterMethod(method -> {
+                            SqlStats stats = SqlStats.current();
+                            if (stats != null && method.getTarget() instanceof ResultSet
+                                    && "next".equals(method.getMethod().getName())
+                                    && Boolean.TRUE.equals(method.getResult())) {
+                                stats.recordRow();
+                            }
+                        })
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public SqlStatsFilter sqlStatsFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                         @Value("${users.sql.repeated-statement-threshold:10}") int repeatedStatementThreshold) {
+        return new SqlStatsFilter(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), repeatedStatementThreshold);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.users.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements, rows and database time of every request and reports them as response headers and as
+ * {@code sql.request.statements}, {@code sql.request.rows} and {@code sql.request.time} metrics tagged with the
+ * method and URI pattern.
+ * <p>
+ * A request that runs the same statement {@code users.sql.repeated-statement-threshold} times or more is logged
+ * as a likely N+1 and counted in {@code sql.request.repeated}. This service only sends small, synchronous JSON
+ * responses, so the body is held back until the request is done and the headers cover all of its statements.
+ */
+@Slf4j
+public class SqlStatsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+    public static final String MAX_REPEATS_HEADER = "X-SQL-Max-Repeats";
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatedStatementThreshold;
+
+    public SqlStatsFilter(MeterRegistry meterRegistry, int repeatedStatementThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        SqlStats stats = new SqlStats();
+        ContentCachingResponseWrapper bufferedResponse = new ContentCachingResponseWrapper(response);
+        SqlStats.bind(stats);
+        try {
+            chain.doFilter(request, bufferedResponse);
+        } finally {
+            SqlStats.unbind();
+            // An error or redirect has already been sent, headers and all
+            if (!response.isCommitted()) {
+                writeStatsHeaders(response, stats);
+            }
+            bufferedResponse.copyBodyToResponse();
+            record(request, stats);
+        }
+    }
+
+    private static void writeStatsHeaders(HttpServletResponse response, SqlStats stats) {
+        Map.Entry<String, Long> mostRepeated = stats.mostRepeated();
+        response.setHeader(STATEMENTS_HEADER, Long.toString(stats.statements()));
+        response.setHeader(ROWS_HEADER, Long.toString(stats.rows()));
+        response.setHeader(TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.nanos())));
+        response.setHeader(MAX_REPEATS_HEADER, Long.toString(mostRepeated == null ? 0 : mostRepeated.getValue()));
+    }
+
+    private void record(HttpServletRequest request, SqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+        DistributionSummary.builder("sql.request.statements")
+                .description("SQL statements run while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.statements());
+        DistributionSummary.builder("sql.request.rows")
+                .description("Result set rows read while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.rows());
+        Timer.builder("sql.request.time")
+                .description("Time spent executing SQL while serving a request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.nanos(), TimeUnit.NANOSECONDS);
+        Map.Entry<String, Long> mostRepeated = stats.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatedStatementThreshold) {
+            Counter.builder("sql.request.repeated")
+                    .description("Requests that ran one statement at least the repeated-statement threshold times")
+                    .tags("method", method, "uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Possible N+1: {} {} ran the same statement {} times ({} statements in total): {}",
+                    method, request.getRequestURI(), mostRepeated.getValue(), stats.statements(), mostRepeated.getKey());
+        }
+    }
+}
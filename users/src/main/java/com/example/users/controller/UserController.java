@@ -2,6 +2,7 @@ package com.example.users.controller;
 
 import com.example.users.dto.LoginRequest;
 import com.example.users.dto.RegisterRequest;
+import com.example.users.dto.UserSummary;
 import com.example.users.model.User;
 import com.example.users.repository.UserRepository;
 import com.example.users.service.UserService;
@@ -14,11 +15,14 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final int MAX_BATCH_SIZE = 500;
+
     @Autowired
     private UserService userService;
 
@@ -71,6 +75,17 @@ public class UserController {
         return ResponseEntity.ok(userRepository.findAll());
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<List<UserSummary>> getUsersByIds(@RequestParam("ids") Set<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ids.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(userRepository.findSummariesByIdIn(ids));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable("id") Long id) {
         return userRepository.findById(id)
@@ -0,0 +1,7 @@
+package com.example.users.dto;
+
+/**
+ * Public profile fields of a user, without credentials, for callers that only need to render authors.
+ */
+public record UserSummary(Long id, String userName, String profileName) {
+}
@@ -1,10 +1,13 @@
 package com.example.users.repository;
 
+import com.example.users.dto.UserSummary;
 import com.example.users.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -13,4 +16,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query(value = "SELECT * FROM users WHERE user_name = :userName", nativeQuery = true)
     Optional<User> findByUserName(@Param("userName") String userName);
+
+    @Query("SELECT new com.example.users.dto.UserSummary(u.id, u.userName, u.profileName) FROM User u WHERE u.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 }
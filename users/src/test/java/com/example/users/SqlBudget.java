@@ -0,0 +1,35 @@
+package com.example.users;
+
+import com.example.users.config.SqlStatsFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc expectations on the SQL a request ran, read from the headers written by {@link SqlStatsFilter}, so tests
+ * fail when an endpoint goes over its statement budget or starts repeating a statement per row.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static ResultMatcher statementsAtMost(long budget) {
+        return headerAtMost(SqlStatsFilter.STATEMENTS_HEADER, budget, "SQL statements");
+    }
+
+    public static ResultMatcher repeatsAtMost(long budget) {
+        return headerAtMost(SqlStatsFilter.MAX_REPEATS_HEADER, budget, "runs of a single SQL statement");
+    }
+
+    private static ResultMatcher headerAtMost(String header, long budget, String what) {
+        return result -> {
+            String value = result.getResponse().getHeader(header);
+            assertNotNull(value, header + " is missing; is SqlStatsFilter installed?");
+            long actual = Long.parseLong(value);
+            assertTrue(actual <= budget, () -> result.getRequest().getMethod() + " " + result.getRequest().getRequestURI()
+                    + " made " + actual + " " + what + ", over its budget of " + budget);
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.users.integration;
 
+import com.example.users.SqlBudget;
 import com.example.users.dto.LoginRequest;
 import com.example.users.dto.RegisterRequest;
 import com.example.users.model.User;
@@ -15,6 +16,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -73,7 +77,8 @@ public class UserIntegrationTest {
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("Login successful"))
-                .andExpect(jsonPath("$.username").value("integrationtest"));
+                .andExpect(jsonPath("$.username").value("integrationtest"))
+                .andExpect(SqlBudget.statementsAtMost(1));
 
         // 3. Try to register with same email (should fail)
         mockMvc.perform(post("/api/users/register")
@@ -90,4 +95,20 @@ public class UserIntegrationTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(jsonPath("$.error").value("Invalid email or password"));
     }
+
+    @Test
+    void batchLookupReturnsOnlyRequestedProfiles() throws Exception {
+        User alice = userRepository.save(new User(null, "alice", "alice@test.com", "hash", "Alice A"));
+        User bob = userRepository.save(new User(null, "bob", "bob@test.com", "hash", "Bob B"));
+        userRepository.save(new User(null, "carol", "carol@test.com", "hash", "Carol C"));
+
+        mockMvc.perform(get("/api/users/batch")
+                        .param("ids", alice.getId() + "," + bob.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].profileName", containsInAnyOrder("Alice A", "Bob B")))
+                .andExpect(jsonPath("$[0].password").doesNotExist())
+                .andExpect(jsonPath("$[0].email").doesNotExist())
+                .andExpect(SqlBudget.statementsAtMost(1));
+    }
 }